@@ -0,0 +1,110 @@
+package benchmark;
+
+import entity.Address;
+import entity.Order;
+import org.openjdk.jmh.annotations.*;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 주소 정규화(AddressType) 전후 비교
+ * - interned : 기본 설정 (도시, 우편번호, Address 인스턴스 공유)
+ * - plain : address.intern.size=0 (로우마다 새 Address)
+ *
+ * 연산당 할당량은 -prof gc로 보고, 주문 하나가 유지하는 힙 크기는 트라이얼 시작 시 출력한다.
+ *
+ * java -jar target/benchmarks.jar AddressBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AddressBenchmark {
+
+    @Param({"100000"})
+    public int orders;
+
+    private BenchmarkDatabase database;
+    private EntityManagerFactory emf;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = new BenchmarkDatabase("address");
+        emf = database.createEntityManagerFactory();
+        database.seed(10, 1_000, 100, orders);
+        printRetainedHeap();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        emf.close();
+        database.drop();
+    }
+
+    @Benchmark
+    public List<Order> interned() {
+        return loadOrders();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Daddress.intern.size=0"})
+    public List<Order> plain() {
+        return loadOrders();
+    }
+
+    @Benchmark
+    public List<Address> projectionInterned() {
+        return loadAddresses();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Daddress.intern.size=0"})
+    public List<Address> projectionPlain() {
+        return loadAddresses();
+    }
+
+    private List<Order> loadOrders() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("SELECT o FROM Order o", Order.class).getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    private List<Address> loadAddresses() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("SELECT o.address FROM Order o", Address.class).getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * 주문을 영속성 컨텍스트에 올려 둔 채로 늘어난 힙을 주문 수로 나눈다.
+     */
+    private void printRetainedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long before = memory.getHeapMemoryUsage().getUsed();
+        EntityManager em = emf.createEntityManager();
+        try {
+            List<Order> loaded = em.createQuery("SELECT o FROM Order o", Order.class).getResultList();
+            System.gc();
+            long after = memory.getHeapMemoryUsage().getUsed();
+            System.out.printf("%naddress.intern.size=%s: %d bytes retained per loaded Order (%d orders)%n",
+                    System.getProperty("address.intern.size", "4096"), (after - before) / loaded.size(), loaded.size());
+        } finally {
+            em.close();
+        }
+    }
+}
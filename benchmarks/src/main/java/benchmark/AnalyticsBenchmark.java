@@ -0,0 +1,129 @@
+package benchmark;
+
+import analytics.ColumnarSnapshot;
+import com.zaxxer.hikari.HikariConfig;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import persistence.JpaBootstrap;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 대시보드 집계 비교
+ * - *Jpql : Main의 집계 JPQL (CASE 나이 구간, 상품별 주문 수량 합, DISTINCT 이름)
+ * - *Snapshot : ColumnarSnapshot (메모리 매핑 컬럼 스캔)
+ *
+ * java -jar target/benchmarks.jar AnalyticsBenchmark -p members=1000000 -p orders=10000000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AnalyticsBenchmark {
+
+    @Param({"100000"})
+    public int members;
+
+    @Param({"1000000"})
+    public int orders;
+
+    private BenchmarkDatabase database;
+    private JpaBootstrap bootstrap;
+    private Path directory;
+    private ColumnarSnapshot snapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, IOException {
+        database = new BenchmarkDatabase("analytics");
+        HikariConfig config = JpaBootstrap.defaultPoolConfig();
+        config.setJdbcUrl(database.getUrl());
+        bootstrap = new JpaBootstrap(config, database.properties());
+        database.seed(100, members, 1_000, orders);
+
+        directory = Files.createTempDirectory("columnar");
+        snapshot = new ColumnarSnapshot(bootstrap.getDataSource(), directory);
+        snapshot.refresh();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException, IOException {
+        snapshot.close();
+        Files.deleteIfExists(directory);
+        bootstrap.close();
+        database.drop();
+    }
+
+    @Benchmark
+    public void ageBucketsJpql(Blackhole bh) {
+        EntityManager em = bootstrap.getEntityManagerFactory().createEntityManager();
+        try {
+            bh.consume(em.createQuery(
+                    "select case when m.age <= 10 then '학생요금' when m.age >= 60 then '경로요금' else '일반요금' end, "
+                            + "count(m) from Member m "
+                            + "group by case when m.age <= 10 then '학생요금' when m.age >= 60 then '경로요금' else '일반요금' end")
+                    .getResultList());
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public void ageBucketsSnapshot(Blackhole bh) {
+        bh.consume(snapshot.countMembersByAge(11, 60));
+    }
+
+    @Benchmark
+    public void orderAmountByProductJpql(Blackhole bh) {
+        EntityManager em = bootstrap.getEntityManagerFactory().createEntityManager();
+        try {
+            bh.consume(em.createQuery("select o.product.id, sum(o.orderAmount) from Order o group by o.product.id")
+                    .getResultList());
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public void orderAmountByProductSnapshot(Blackhole bh) {
+        bh.consume(snapshot.sumOrderAmountByProduct());
+    }
+
+    @Benchmark
+    public void orderAmountByTeamJpql(Blackhole bh) {
+        EntityManager em = bootstrap.getEntityManagerFactory().createEntityManager();
+        try {
+            bh.consume(em.createQuery(
+                    "select m.team.id, sum(o.orderAmount) from Order o join o.member m group by m.team.id")
+                    .getResultList());
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public void orderAmountByTeamSnapshot(Blackhole bh) {
+        bh.consume(snapshot.sumOrderAmountByTeam());
+    }
+
+    @Benchmark
+    public void distinctUsernamesJpql(Blackhole bh) {
+        EntityManager em = bootstrap.getEntityManagerFactory().createEntityManager();
+        try {
+            bh.consume(em.createQuery("select count(distinct m.username) from Member m").getSingleResult());
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public void distinctUsernamesSnapshot(Blackhole bh) {
+        bh.consume(snapshot.distinctUsernames());
+    }
+}
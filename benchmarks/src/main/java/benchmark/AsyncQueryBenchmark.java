@@ -0,0 +1,97 @@
+package benchmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import concurrent.AsyncQueries;
+import concurrent.UnitOfWorkExecutor;
+import entity.Member;
+import entity.Team;
+import org.openjdk.jmh.annotations.*;
+import persistence.JpaBootstrap;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Main.selectByEntity의 네 쿼리를 차례대로 실행할 때와 AsyncQueries로 동시에 실행할 때의 호출 지연 시간
+ *
+ * java -jar target/benchmarks.jar AsyncQueryBenchmark -t 1,8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AsyncQueryBenchmark {
+
+    @Param({"16"})
+    public int poolSize;
+
+    @Param({"100000"})
+    public int members;
+
+    private static final int TEAMS = 100;
+
+    private BenchmarkDatabase database;
+    private JpaBootstrap bootstrap;
+    private UnitOfWorkExecutor executor;
+    private AsyncQueries async;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = BenchmarkDatabase.server("async", 9095);
+        HikariConfig config = JpaBootstrap.defaultPoolConfig();
+        config.setJdbcUrl(database.getUrl());
+        config.setMaximumPoolSize(poolSize);
+        bootstrap = new JpaBootstrap(config, database.properties());
+        database.seed(TEAMS, members, 1, 0);
+        executor = new UnitOfWorkExecutor(bootstrap);
+        async = new AsyncQueries(executor, poolSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        executor.close();
+        bootstrap.close();
+        database.drop();
+    }
+
+    @Benchmark
+    public int sequential() {
+        long memberId = 1 + ThreadLocalRandom.current().nextInt(members);
+        long teamId = 1 + ThreadLocalRandom.current().nextInt(TEAMS);
+        return bootstrap.inTransaction(em -> {
+            Member member = em.find(Member.class, memberId);
+            List<Member> byEntity = em.createQuery("select m from Member m where m = :member", Member.class)
+                    .setParameter("member", member).getResultList();
+            List<Member> byId = em.createQuery("select m from Member m where m.id = :memberId", Member.class)
+                    .setParameter("memberId", memberId).getResultList();
+            Team team = em.find(Team.class, teamId);
+            List<Member> byTeam = em.createQuery("select m from Member m where m.team = :team", Member.class)
+                    .setParameter("team", team).getResultList();
+            List<Member> byTeamId = em.createQuery("select m from Member m where m.team.id = :teamId", Member.class)
+                    .setParameter("teamId", teamId).getResultList();
+            return byEntity.size() + byId.size() + byTeam.size() + byTeamId.size();
+        });
+    }
+
+    @Benchmark
+    public int concurrent() {
+        long memberId = 1 + ThreadLocalRandom.current().nextInt(members);
+        long teamId = 1 + ThreadLocalRandom.current().nextInt(TEAMS);
+        CompletableFuture<List<Member>> byEntity = async.find(Member.class, memberId)
+                .thenCompose(member -> async.list(em -> em.createQuery(
+                        "select m from Member m where m = :member", Member.class).setParameter("member", member)));
+        CompletableFuture<List<Member>> byId = async.list(em -> em.createQuery(
+                "select m from Member m where m.id = :memberId", Member.class).setParameter("memberId", memberId));
+        CompletableFuture<List<Member>> byTeam = async.find(Team.class, teamId)
+                .thenCompose(team -> async.list(em -> em.createQuery(
+                        "select m from Member m where m.team = :team", Member.class).setParameter("team", team)));
+        CompletableFuture<List<Member>> byTeamId = async.list(em -> em.createQuery(
+                "select m from Member m where m.team.id = :teamId", Member.class).setParameter("teamId", teamId));
+        return byEntity.join().size() + byId.join().size() + byTeam.join().size() + byTeamId.join().size();
+    }
+}
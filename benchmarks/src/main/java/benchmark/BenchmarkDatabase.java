@@ -0,0 +1,171 @@
+package benchmark;
+
+import org.h2.tools.Server;
+import rollup.Rollups;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 벤치마크용 내장 H2 데이터베이스
+ * 스키마는 하이버네이트(hbm2ddl)가 엔티티 매핑으로 생성하고,
+ * 데이터는 JPA를 거치지 않고 JDBC 배치로 채운다. (천만 건도 수십 초 안에 적재)
+ */
+public class BenchmarkDatabase {
+
+    private static final int JDBC_BATCH_SIZE = 1_000;
+    private static final int ORDER_ALLOCATION_SIZE = 50;
+    private static final String[] CITIES = {"서울", "부산", "대구", "인천", "광주", "대전", "울산"};
+
+    private final String url;
+    private final Server server;
+
+    /**
+     * 같은 JVM 안의 인메모리 데이터베이스
+     */
+    public BenchmarkDatabase(String name) {
+        this.url = "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1;QUERY_CACHE_SIZE=64";
+        this.server = null;
+    }
+
+    private BenchmarkDatabase(String url, Server server) {
+        this.url = url;
+        this.server = server;
+    }
+
+    /**
+     * TCP 서버 모드 데이터베이스
+     * 운영 환경처럼 커넥션마다 네트워크를 거친다. 동시성 벤치마크에 사용한다.
+     * MULTI_THREADED=1이 없으면 H2는 데이터베이스 하나에서 한 번에 한 문장만 실행한다.
+     */
+    public static BenchmarkDatabase server(String name, int port) throws SQLException {
+        Server server = Server.createTcpServer("-tcpPort", String.valueOf(port)).start();
+        String url = "jdbc:h2:tcp://localhost:" + port + "/mem:" + name
+                + ";DB_CLOSE_DELAY=-1;MULTI_THREADED=1;QUERY_CACHE_SIZE=64";
+        return new BenchmarkDatabase(url, server);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * 내장 H2를 바라보는 엔티티 매니저 팩토리를 만든다.
+     * persistence.xml의 설정 중 접속 URL과 로그 출력만 덮어쓴다.
+     */
+    public EntityManagerFactory createEntityManagerFactory() {
+        return Persistence.createEntityManagerFactory("jpa_lab_8_1", properties());
+    }
+
+    public Map<String, String> properties() {
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put("javax.persistence.jdbc.url", url);
+        properties.put("hibernate.show_sql", "false");
+        properties.put("hibernate.format_sql", "false");
+        properties.put("hibernate.use_sql_comments", "false");
+        properties.put("hibernate.hbm2ddl.auto", "create");
+        return properties;
+    }
+
+    public Connection connection() throws SQLException {
+        return DriverManager.getConnection(url, "sa", "");
+    }
+
+    /**
+     * 팀, 회원, 상품, 주문 데이터를 적재한다.
+     * 식별자는 1부터 차례대로 직접 부여하고, 마지막에 시퀀스를 그 다음 값으로 맞춘다.
+     * 회원 i는 팀 (i % teams) + 1에, 주문 i는 회원 (i % members) + 1과 상품 (i % products) + 1에 속한다.
+     */
+    public void seed(int teams, int members, int products, int orders) throws SQLException {
+        try (Connection connection = connection()) {
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO TEAM (ID, NAME) VALUES (?, ?)")) {
+                for (int i = 1; i <= teams; i++) {
+                    ps.setLong(1, i);
+                    ps.setString(2, "팀" + i);
+                    addBatch(ps, i);
+                }
+                ps.executeBatch();
+            }
+
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO MEMBER (ID, USERNAME, AGE, TEAM_ID) VALUES (?, ?, ?, ?)")) {
+                for (int i = 1; i <= members; i++) {
+                    ps.setLong(1, i);
+                    ps.setString(2, "member" + i);
+                    ps.setInt(3, i % 100);
+                    ps.setLong(4, (i % teams) + 1);
+                    addBatch(ps, i);
+                }
+                ps.executeBatch();
+            }
+
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO PRODUCT (ID, NAME, PRICE, STOCKAMOUNT, VERSION) VALUES (?, ?, ?, ?, 0)")) {
+                for (int i = 1; i <= products; i++) {
+                    ps.setLong(1, i);
+                    ps.setString(2, "상품" + i);
+                    ps.setInt(3, 1_000 + (i % 50) * 100);
+                    ps.setInt(4, i % 1_000);
+                    addBatch(ps, i);
+                }
+                ps.executeBatch();
+            }
+
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO ORDERS (ID, ORDERAMOUNT, CITY, STREET, ZIPCODE, MEMBER_ID, PRODUCT_ID) "
+                            + "VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+                for (int i = 1; i <= orders; i++) {
+                    ps.setLong(1, i);
+                    ps.setInt(2, 1 + (i % 10));
+                    ps.setString(3, CITIES[i % CITIES.length]);
+                    ps.setString(4, "거리" + (i % 1_000));
+                    ps.setString(5, String.format("%05d", i % 100));
+                    ps.setLong(6, (i % members) + 1);
+                    ps.setLong(7, (i % products) + 1);
+                    addBatch(ps, i);
+                }
+                ps.executeBatch();
+            }
+
+            long next = Math.max(Math.max(teams, members), Math.max(products, orders)) + 1L;
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ALTER SEQUENCE HIBERNATE_SEQUENCE RESTART WITH " + next);
+                // pooled 최적화는 시퀀스 값에서 allocationSize만큼 앞의 식별자부터 쓰므로 그만큼 더 띄운다.
+                statement.execute("ALTER SEQUENCE ORDER_SEQ RESTART WITH " + (orders + 1 + ORDER_ALLOCATION_SIZE));
+            }
+            // JDBC로 적재한 데이터는 엔티티 이벤트가 없으므로 집계 테이블을 다시 계산한다.
+            Rollups.rebuild(connection);
+            connection.commit();
+        }
+    }
+
+    /**
+     * 데이터베이스를 통째로 버린다. 다음 트라이얼은 빈 데이터베이스에서 시작한다.
+     */
+    public void drop() throws SQLException {
+        try (Connection connection = connection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    private static void addBatch(PreparedStatement ps, int i) throws SQLException {
+        ps.addBatch();
+        if (i % JDBC_BATCH_SIZE == 0) {
+            ps.executeBatch();
+        }
+    }
+}
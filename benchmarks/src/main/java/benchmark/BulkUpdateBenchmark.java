@@ -0,0 +1,87 @@
+package benchmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import entity.Product;
+import org.openjdk.jmh.annotations.*;
+import persistence.JpaBootstrap;
+import query.BulkOperations;
+import query.ResultStreams;
+
+import javax.persistence.EntityManager;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 상품 전체 가격 변경 (products건)
+ * - perEntity : 상품을 스트림으로 읽어 하나씩 바꾸고 플러시 (JDBC 배치 UPDATE)
+ * - bulk : JPQL UPDATE 한 문장
+ * - bulkChunked : 식별자 범위 chunkSize씩 나눠서 구간마다 커밋
+ *
+ * java -jar target/benchmarks.jar BulkUpdateBenchmark -p products=1000000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BulkUpdateBenchmark {
+
+    private static final String REPRICE = "update versioned Product p set p.price = p.price + 1";
+
+    @Param({"1000000"})
+    public int products;
+
+    @Param({"50000"})
+    public int chunkSize;
+
+    private BenchmarkDatabase database;
+    private JpaBootstrap bootstrap;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = new BenchmarkDatabase("bulk_update");
+        HikariConfig config = JpaBootstrap.defaultPoolConfig();
+        config.setJdbcUrl(database.getUrl());
+        bootstrap = new JpaBootstrap(config, database.properties());
+        database.seed(1, 1, products, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        bootstrap.close();
+        database.drop();
+    }
+
+    @Benchmark
+    public long perEntity() {
+        return bootstrap.inTransaction(em -> {
+            long count = 0;
+            try (Stream<Product> rows = ResultStreams.stream(em,
+                    em.createQuery("select p from Product p", Product.class), 1_000, 50)) {
+                // 스트림이 50건마다 영속성 컨텍스트를 비우므로 그 전에 플러시한다.
+                for (Product product : (Iterable<Product>) rows::iterator) {
+                    product.setPrice(product.getPrice() + 1);
+                    if (++count % 50 == 0) {
+                        em.flush();
+                    }
+                }
+            }
+            return count;
+        });
+    }
+
+    @Benchmark
+    public int bulk() {
+        return bootstrap.inTransaction(em -> BulkOperations.execute(em, Product.class, REPRICE,
+                Collections.<String, Object>emptyMap(), BulkOperations.Coherence.DETACH));
+    }
+
+    @Benchmark
+    public long bulkChunked() {
+        return BulkOperations.executeChunked(bootstrap, Product.class,
+                REPRICE + " where p.id >= :lo and p.id < :hi", Collections.<String, Object>emptyMap(), chunkSize);
+    }
+}
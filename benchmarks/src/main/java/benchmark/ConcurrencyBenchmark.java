@@ -0,0 +1,70 @@
+package benchmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import entity.Member;
+import entity.Team;
+import org.openjdk.jmh.annotations.*;
+import persistence.JpaBootstrap;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 스레드 수에 따른 처리량
+ * H2를 TCP 서버 모드로 띄우고, JpaBootstrap(커넥션 풀)으로 작업 단위마다 엔티티 매니저와 트랜잭션을 연다.
+ * 스레드 수는 JMH 옵션으로 바꿔 가며 실행한다.
+ *
+ * for t in 1 2 4 8 16 32 64; do java -jar target/benchmarks.jar ConcurrencyBenchmark -t $t -p poolSize=16; done
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ConcurrencyBenchmark {
+
+    @Param({"16"})
+    public int poolSize;
+
+    @Param({"10000"})
+    public int members;
+
+    private BenchmarkDatabase database;
+    private JpaBootstrap bootstrap;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = BenchmarkDatabase.server("concurrency", 9092);
+
+        HikariConfig config = JpaBootstrap.defaultPoolConfig();
+        config.setJdbcUrl(database.getUrl());
+        config.setMaximumPoolSize(poolSize);
+        bootstrap = new JpaBootstrap(config, database.properties());
+        database.seed(100, members, 100, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        bootstrap.close();
+        database.drop();
+    }
+
+    @Benchmark
+    public List<Member> bindParams() {
+        String username = "member" + (1 + ThreadLocalRandom.current().nextInt(members));
+        return bootstrap.inTransaction(em -> em.createNamedQuery("Member.findByUsername", Member.class)
+                .setParameter("username", username)
+                .getResultList());
+    }
+
+    @Benchmark
+    public List<Member> selectByTeam() {
+        long teamId = 1 + ThreadLocalRandom.current().nextInt(100);
+        return bootstrap.inTransaction(em -> em.createNamedQuery("Member.findByTeam", Member.class)
+                .setParameter("team", em.find(Team.class, teamId))
+                .getResultList());
+    }
+}
@@ -0,0 +1,83 @@
+package benchmark;
+
+import entity.Order;
+import org.openjdk.jmh.annotations.*;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 영속성 컨텍스트에 주문 orders건을 올려 두고 그중 modified건만 바꾼 뒤 플러시하는 시간
+ * - tracking=true : DirtyTrackingStrategy (바꾼 엔티티의 바꾼 필드만 비교)
+ * - tracking=false : 모든 엔티티를 스냅샷과 비교 (SnapshotDirtinessStrategy)
+ *
+ * 매 호출 전에 주문을 새로 로딩하고, 플러시한 변경은 롤백한다.
+ *
+ * java -jar target/benchmarks.jar FlushBenchmark -p modified=0,100,10000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FlushBenchmark {
+
+    @Param({"100000"})
+    public int orders;
+
+    @Param({"100"})
+    public int modified;
+
+    @Param({"true", "false"})
+    public boolean tracking;
+
+    private BenchmarkDatabase database;
+    private EntityManagerFactory emf;
+    private EntityManager em;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = new BenchmarkDatabase("flush");
+        Map<String, String> properties = database.properties();
+        if (!tracking) {
+            properties.put("hibernate.entity_dirtiness_strategy", SnapshotDirtinessStrategy.class.getName());
+        }
+        emf = Persistence.createEntityManagerFactory("jpa_lab_8_1", properties);
+        database.seed(10, 1_000, 100, orders);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        emf.close();
+        database.drop();
+    }
+
+    @Setup(Level.Invocation)
+    public void load() {
+        em = emf.createEntityManager();
+        em.getTransaction().begin();
+        List<Order> loaded = em.createQuery("select o from Order o", Order.class).getResultList();
+        int step = Math.max(1, loaded.size() / Math.max(1, modified));
+        for (int i = 0, changed = 0; i < loaded.size() && changed < modified; i += step, changed++) {
+            Order order = loaded.get(i);
+            order.setOrderAmount(order.getOrderAmount() + 1);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void rollback() {
+        em.getTransaction().rollback();
+        em.close();
+    }
+
+    @Benchmark
+    public void flush() {
+        em.flush();
+    }
+}
@@ -0,0 +1,150 @@
+package benchmark;
+
+import entity.Member;
+import entity.Team;
+import monitor.IndexAdvisor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 인덱스 추천 전후 비교
+ * - indexed=false : 엔티티에 선언한 IDX_ 인덱스까지 모두 지운 상태 (기본 키와 외래 키 제약 조건이 쓰는 인덱스만 남는다)
+ * - indexed=true : 같은 상태에서 쿼리를 한 번씩 실행하고 IndexAdvisor가 제안한 인덱스를 만든 상태
+ *
+ * 제안 내용은 트라이얼 시작 시 출력한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class IndexAdvisorBenchmark {
+
+    @Param({"100000"})
+    public int members;
+
+    @Param({"false", "true"})
+    public boolean indexed;
+
+    private static final int TEAMS = 1_000;
+
+    private BenchmarkDatabase database;
+    private EntityManagerFactory emf;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = new BenchmarkDatabase("index_advisor");
+        emf = database.createEntityManagerFactory();
+        database.seed(TEAMS, members, 1, 0);
+
+        try (Connection connection = database.connection()) {
+            dropAdvisedIndexes(connection);
+            if (indexed) {
+                List<IndexAdvisor.Proposal> proposals;
+                try (IndexAdvisor advisor = new IndexAdvisor().start()) {
+                    Blackhole bh = new Blackhole(
+                            "Today's password is swordfish. I understand instantiating Blackholes directly is dangerous.");
+                    findByTeamName(bh);
+                    findByUsername(bh);
+                    orderByUsername(bh);
+                    findByTeam(bh);
+                    proposals = advisor.advise(connection);
+                }
+                System.out.println(IndexAdvisor.report(proposals));
+                try (Statement statement = connection.createStatement()) {
+                    for (IndexAdvisor.Proposal proposal : proposals) {
+                        statement.execute(proposal.toDdl());
+                    }
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        emf.close();
+        database.drop();
+    }
+
+    @Benchmark
+    public void findByTeamName(Blackhole bh) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            bh.consume(em.createNamedQuery("Member.findByTeamName", Member.class)
+                    .setParameter("teamName", "팀" + (1 + ThreadLocalRandom.current().nextInt(TEAMS)))
+                    .getResultList());
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public void findByUsername(Blackhole bh) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            bh.consume(em.createNamedQuery("Member.findByUsername", Member.class)
+                    .setParameter("username", "member" + (1 + ThreadLocalRandom.current().nextInt(members)))
+                    .getResultList());
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public void orderByUsername(Blackhole bh) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            bh.consume(em.createNamedQuery("Member.findAllOrderByUsernameDesc", Member.class)
+                    .setFirstResult(10)
+                    .setMaxResults(20)
+                    .getResultList());
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public void findByTeam(Blackhole bh) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            Team team = em.getReference(Team.class, (long) (1 + ThreadLocalRandom.current().nextInt(TEAMS)));
+            bh.consume(em.createQuery("select m from Member m where m.team = :team", Member.class)
+                    .setParameter("team", team)
+                    .getResultList());
+        } finally {
+            em.close();
+        }
+    }
+
+    private static void dropAdvisedIndexes(Connection connection) throws SQLException {
+        List<String> names = new ArrayList<String>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                     "SELECT DISTINCT INDEX_NAME FROM INFORMATION_SCHEMA.INDEXES WHERE INDEX_NAME LIKE 'IDX\\_%'")) {
+            while (rs.next()) {
+                names.add(rs.getString(1));
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            for (String name : names) {
+                try {
+                    statement.execute("DROP INDEX " + name);
+                } catch (SQLException e) {
+                    // 외래 키 제약 조건이 쓰고 있는 인덱스(IDX_MEMBER_TEAM_ID 등)는 지울 수 없으므로 남겨 둔다.
+                }
+            }
+        }
+    }
+}
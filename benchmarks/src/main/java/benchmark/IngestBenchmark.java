@@ -0,0 +1,85 @@
+package benchmark;
+
+import entity.Address;
+import entity.Member;
+import entity.Order;
+import entity.Product;
+import ingest.OrderIngestor;
+import ingest.OrderRequest;
+import org.openjdk.jmh.annotations.*;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 주문 적재 비교
+ * - perOrder : 주문마다 persist()하고 커밋
+ * - ingestor : OrderIngestor (pooled 시퀀스 + JDBC 배치 + 주기적 flush/clear)
+ *
+ * 한 번의 연산이 rows건을 적재하므로 초당 적재 건수는 rows / 평균 시간이다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class IngestBenchmark {
+
+    @Param({"10000"})
+    public int rows;
+
+    private BenchmarkDatabase database;
+    private EntityManagerFactory emf;
+    private OrderIngestor ingestor;
+    private List<OrderRequest> requests;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = new BenchmarkDatabase("ingest");
+        emf = database.createEntityManagerFactory();
+        database.seed(10, 1_000, 100, 0);
+        ingestor = new OrderIngestor(emf);
+
+        requests = new ArrayList<OrderRequest>(rows);
+        for (int i = 0; i < rows; i++) {
+            requests.add(new OrderRequest(1 + i % 1_000, 1 + i % 100, 1 + i % 10,
+                    new Address("서울", "거리" + (i % 1_000), String.format("%05d", i % 100))));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        emf.close();
+        database.drop();
+    }
+
+    @Benchmark
+    public long perOrder() {
+        for (OrderRequest request : requests) {
+            EntityManager em = emf.createEntityManager();
+            try {
+                em.getTransaction().begin();
+                Order order = new Order();
+                order.setMember(em.getReference(Member.class, request.memberId()));
+                order.setProduct(em.getReference(Product.class, request.productId()));
+                order.setOrderAmount(request.orderAmount());
+                order.setAddress(request.address());
+                em.persist(order);
+                em.getTransaction().commit();
+            } finally {
+                em.close();
+            }
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public long ingestor() {
+        return ingestor.ingest(requests);
+    }
+}
@@ -0,0 +1,99 @@
+package benchmark;
+
+import entity.Member;
+import entity.Order;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 외래 키 조인 벤치마크
+ * - memberTeamJoin : 팀 이름으로 회원 조회 (MEMBER.TEAM_ID = TEAM.ID)
+ * - orderMemberJoin : 회원 이름으로 주문 조회 (ORDERS.MEMBER_ID = MEMBER.ID)
+ *
+ * 트라이얼 시작 시 같은 조인의 SQL 실행 계획을 출력한다.
+ * H2는 해시 조인이 없으므로 안쪽 테이블이 외래 키 인덱스(IDX_MEMBER_TEAM_ID, IDX_ORDERS_MEMBER_ID)로
+ * 조회되는지(tableScan이 아닌지) 확인한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class JoinBenchmark {
+
+    @Param({"100000"})
+    public int members;
+
+    @Param({"1000000"})
+    public int orders;
+
+    private static final int TEAMS = 1_000;
+
+    private BenchmarkDatabase database;
+    private EntityManagerFactory emf;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = new BenchmarkDatabase("join");
+        emf = database.createEntityManagerFactory();
+        database.seed(TEAMS, members, 100, orders);
+
+        try (Connection connection = database.connection()) {
+            explain(connection, "SELECT M.* FROM TEAM T INNER JOIN MEMBER M ON M.TEAM_ID = T.ID WHERE T.NAME = ?");
+            explain(connection, "SELECT O.* FROM MEMBER M INNER JOIN ORDERS O ON O.MEMBER_ID = M.ID WHERE M.USERNAME = ?");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        emf.close();
+        database.drop();
+    }
+
+    @Benchmark
+    public void memberTeamJoin(Blackhole bh) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            bh.consume(em.createNamedQuery("Member.findByTeamName", Member.class)
+                    .setParameter("teamName", "팀" + (1 + ThreadLocalRandom.current().nextInt(TEAMS)))
+                    .getResultList());
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public void orderMemberJoin(Blackhole bh) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            bh.consume(em.createQuery(
+                    "select o from Order o join o.member m where m.username = :username", Order.class)
+                    .setParameter("username", "member" + (1 + ThreadLocalRandom.current().nextInt(members)))
+                    .getResultList());
+        } finally {
+            em.close();
+        }
+    }
+
+    private static void explain(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("EXPLAIN " + sql)) {
+            ps.setNull(1, Types.VARCHAR);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    System.out.println(rs.getString(1));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package benchmark;
+
+import entity.Member;
+import org.openjdk.jmh.annotations.*;
+import query.KeysetPaginator;
+import query.Page;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 오프셋 페이징과 키셋 페이징 비교
+ * 같은 깊이(depth번째 페이지)를 두 방식으로 조회한다.
+ * 오프셋 페이징은 깊이에 비례해서 느려지고, 키셋 페이징은 깊이와 관계없이 일정해야 한다.
+ *
+ * java -jar target/benchmarks.jar PagingBenchmark -p members=1000000 -p depth=0,100,10000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PagingBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"100000"})
+    public int members;
+
+    @Param({"0", "100", "1000"})
+    public int depth;
+
+    private BenchmarkDatabase database;
+    private EntityManagerFactory emf;
+    private KeysetPaginator<Member> paginator;
+    private String cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = new BenchmarkDatabase("paging");
+        emf = database.createEntityManagerFactory();
+        database.seed(100, members, 1, 0);
+
+        EntityManager em = emf.createEntityManager();
+        try {
+            paginator = new KeysetPaginator<Member>(em, Member.class, "username", true);
+            // depth번째 페이지 직전 행의 커서를 한 번만 구해 둔다.
+            if (depth > 0) {
+                Page<Member> previous = paginator.page(em, null, depth * PAGE_SIZE);
+                cursor = previous.getNextCursor();
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        emf.close();
+        database.drop();
+    }
+
+    @Benchmark
+    public List<Member> offset() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createNamedQuery("Member.findAllOrderByUsernameDesc", Member.class)
+                    .setFirstResult(depth * PAGE_SIZE)
+                    .setMaxResults(PAGE_SIZE)
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public Page<Member> keyset() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return paginator.page(em, cursor, PAGE_SIZE);
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package benchmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import concurrent.PartitionedScan;
+import concurrent.UnitOfWorkExecutor;
+import entity.Order;
+import org.openjdk.jmh.annotations.*;
+import persistence.JpaBootstrap;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 주문 전체 집계를 구간 수(partitions)별로 비교한다. partitions=1이 순차 조회다.
+ *
+ * java -jar target/benchmarks.jar PartitionedScanBenchmark -p orders=10000000 -p partitions=1,2,4,8,16
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class PartitionedScanBenchmark {
+
+    @Param({"1000000"})
+    public int orders;
+
+    @Param({"1", "4", "8"})
+    public int partitions;
+
+    private BenchmarkDatabase database;
+    private JpaBootstrap bootstrap;
+    private UnitOfWorkExecutor executor;
+    private PartitionedScan scan;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = BenchmarkDatabase.server("partitioned_scan", 9094);
+        HikariConfig config = JpaBootstrap.defaultPoolConfig();
+        config.setJdbcUrl(database.getUrl());
+        config.setMaximumPoolSize(Math.max(partitions, 2));
+        bootstrap = new JpaBootstrap(config, database.properties());
+        database.seed(100, 10_000, 1_000, orders);
+
+        executor = new UnitOfWorkExecutor(bootstrap);
+        scan = new PartitionedScan(bootstrap, executor, partitions);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        executor.close();
+        bootstrap.close();
+        database.drop();
+    }
+
+    @Benchmark
+    public long sumOrderAmount() {
+        return scan.scan(Order.class,
+                "SELECT o.orderAmount FROM Order o WHERE o.id >= :lo AND o.id < :hi",
+                Integer.class, Collectors.summingLong(Integer::longValue));
+    }
+}
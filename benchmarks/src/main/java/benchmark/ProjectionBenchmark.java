@@ -0,0 +1,96 @@
+package benchmark;
+
+import dto.MemberSummary;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import query.DtoProjection;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 여러 값 프로젝션 비교
+ * - objectArray : Object[]로 받아서 컬럼마다 캐스팅 (Main.query)
+ * - selectNew : JPQL NEW 생성자 식
+ * - dtoProjection : DtoProjection (MethodHandle 생성자 호출)
+ *
+ * java -jar target/benchmarks.jar ProjectionBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ProjectionBenchmark {
+
+    @Param({"10000"})
+    public int members;
+
+    private BenchmarkDatabase database;
+    private EntityManagerFactory emf;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = new BenchmarkDatabase("projection");
+        emf = database.createEntityManagerFactory();
+        database.seed(100, members, 1, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        emf.close();
+        database.drop();
+    }
+
+    @Benchmark
+    public void objectArray(Blackhole bh) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            List<Object[]> resultList =
+                    em.createQuery("SELECT m.username, m.age FROM Member m").getResultList();
+            for (Object[] row : resultList) {
+                String username = (String) row[0];
+                Integer age = (Integer) row[1];
+                bh.consume(username);
+                bh.consume(age.intValue());
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public void selectNew(Blackhole bh) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            List<MemberSummary> resultList = em.createQuery(
+                    "SELECT NEW dto.MemberSummary(m.username, m.age) FROM Member m", MemberSummary.class)
+                    .getResultList();
+            for (MemberSummary summary : resultList) {
+                bh.consume(summary.username());
+                bh.consume(summary.age());
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public void dtoProjection(Blackhole bh) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            List<MemberSummary> resultList = DtoProjection.of(MemberSummary.class)
+                    .getResultList(em.createQuery("SELECT m.username, m.age FROM Member m"));
+            for (MemberSummary summary : resultList) {
+                bh.consume(summary.username());
+                bh.consume(summary.age());
+            }
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package benchmark;
+
+import entity.Address;
+import entity.Member;
+import entity.Team;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import query.FetchPlans;
+import query.QueryCaching;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Main이 보여주는 쿼리 패턴별 벤치마크
+ * 각 벤치마크는 Main의 JPQL을 그대로 사용하고, 호출마다 새 엔티티 매니저(빈 영속성 컨텍스트)로 실행한다.
+ *
+ * 처리량과 p99 지연은 Throughput, SampleTime 모드로 함께 측정하고
+ * 연산당 할당량은 -prof gc 로 확인한다.
+ *
+ * java -jar target/benchmarks.jar QueryPatternBenchmark -p members=10000,1000000 -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class QueryPatternBenchmark {
+
+    @Param({"100"})
+    public int teams;
+
+    @Param({"10000"})
+    public int members;
+
+    @Param({"1000"})
+    public int products;
+
+    @Param({"10000"})
+    public int orders;
+
+    private BenchmarkDatabase database;
+    private EntityManagerFactory emf;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = new BenchmarkDatabase("query_pattern");
+        emf = database.createEntityManagerFactory();
+        database.seed(teams, members, products, orders);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        emf.close();
+        database.drop();
+    }
+
+    /**
+     * 엔티티 프로젝션 - SELECT m FROM Member m
+     */
+    @Benchmark
+    public List<Member> typeQuery() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("SELECT m FROM Member m", Member.class)
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * 여러 값 프로젝션 - Object[]로 받아서 캐스팅한다.
+     */
+    @Benchmark
+    public void query(Blackhole bh) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            List<Object[]> resultList =
+                    em.createQuery("SELECT m.username, m.age FROM Member m").getResultList();
+            for (Object[] row : resultList) {
+                bh.consume((String) row[0]);
+                bh.consume((Integer) row[1]);
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * 이름 기준 파라미터 바인딩
+     */
+    @Benchmark
+    public List<Member> bindParams() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("SELECT m FROM Member m where m.username = :username", Member.class)
+                    .setParameter("username", randomUsername())
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * 위치 기준 파라미터 바인딩
+     */
+    @Benchmark
+    public List<Member> locateParams() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("SELECT m FROM Member m where m.username = ?1", Member.class)
+                    .setParameter(1, randomUsername())
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * 이름 있는 쿼리 - 팩토리 생성 시점에 컴파일된 쿼리로 바인딩과 실행만 한다.
+     */
+    @Benchmark
+    public List<Member> bindParamsNamed() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createNamedQuery("Member.findByUsername", Member.class)
+                    .setParameter("username", randomUsername())
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * 쿼리 결과 캐시 - 같은 이름이 반복되면 데이터베이스를 거치지 않는다.
+     */
+    @Benchmark
+    public List<Member> bindParamsCached() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return QueryCaching.cacheable(
+                            em.createNamedQuery("Member.findByUsername", Member.class), QueryCaching.MEMBER_BY_USERNAME)
+                    .setParameter("username", randomHotUsername())
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public List<Member> locateParamsNamed() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createNamedQuery("Member.findByUsernamePosition", Member.class)
+                    .setParameter(1, randomUsername())
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * 임베디드 타입 프로젝션
+     */
+    @Benchmark
+    public List<Address> projectionEmbedded() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("SELECT o.address FROM Order o", Address.class)
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * 스칼라 타입 프로젝션
+     */
+    @Benchmark
+    public List<String> projectionScalar() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("SELECT m.username FROM Member m", String.class)
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * 엔티티와 스칼라를 섞은 Object[] 프로젝션
+     */
+    @Benchmark
+    public void projectionObjectArray(Blackhole bh) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            List<Object[]> resultList =
+                    em.createQuery("SELECT o.member, o.product, o.orderAmount FROM Order o")
+                            .getResultList();
+            for (Object[] row : resultList) {
+                bh.consume(row[0]);
+                bh.consume(row[1]);
+                bh.consume((Integer) row[2]);
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * 페이징 - 11~30번 데이터
+     */
+    @Benchmark
+    public List<Member> setPagingInfo() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            TypedQuery<Member> query =
+                    em.createQuery("SELECT m FROM Member m ORDER BY m.username DESC", Member.class);
+            query.setFirstResult(10);
+            query.setMaxResults(20);
+            return query.getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * 내부 조인 - 팀 이름으로 회원 조회, 회원과 팀을 함께 조회
+     */
+    @Benchmark
+    public void innerJoin(Blackhole bh) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            bh.consume(em.createQuery("SELECT m FROM Member m INNER JOIN m.team t "
+                            + "WHERE t.name = :teamName", Member.class)
+                    .setParameter("teamName", randomTeamName())
+                    .getResultList());
+
+            List<Object[]> resultList =
+                    em.createQuery("SELECT m, t FROM Member m JOIN m.team t").getResultList();
+            for (Object[] row : resultList) {
+                bh.consume((Member) row[0]);
+                bh.consume((Team) row[1]);
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * 엔티티 페치 조인과 컬렉션 페치 조인
+     */
+    @Benchmark
+    public void fetchJoin(Blackhole bh) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            List<Member> members =
+                    em.createQuery("select m from Member m join fetch m.team", Member.class)
+                            .getResultList();
+            for (Member member : members) {
+                bh.consume(member.getTeam().getName());
+            }
+
+            List<Team> teams =
+                    em.createQuery("select t from Team t join fetch t.members where t.name = :name", Team.class)
+                            .setParameter("name", randomTeamName())
+                            .getResultList();
+            for (Team team : teams) {
+                for (Member member : team.getMembers()) {
+                    bh.consume(member.getUsername());
+                }
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * 페치 플랜 - join fetch 없이 엔티티 그래프 힌트로 회원과 팀을 함께 조회
+     */
+    @Benchmark
+    public void fetchPlan(Blackhole bh) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            List<Member> members = FetchPlans.apply(em,
+                            em.createQuery("select m from Member m", Member.class), FetchPlans.MEMBER_WITH_TEAM)
+                    .getResultList();
+            for (Member member : members) {
+                bh.consume(member.getTeam().getName());
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * 엔티티 직접 사용 - 엔티티, 식별자, 외래 키 엔티티, 외래 키 식별자로 각각 조회
+     */
+    @Benchmark
+    public void selectByEntity(Blackhole bh) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            long memberId = 1 + ThreadLocalRandom.current().nextInt(members);
+            long teamId = 1 + ThreadLocalRandom.current().nextInt(teams);
+
+            Member member = em.find(Member.class, memberId);
+            bh.consume(em.createQuery("select m from Member m where m = :member")
+                    .setParameter("member", member)
+                    .getResultList());
+            bh.consume(em.createQuery("select m from Member m where m.id = :memberId")
+                    .setParameter("memberId", memberId)
+                    .getResultList());
+
+            Team team = em.find(Team.class, teamId);
+            bh.consume(em.createQuery("select m from Member m where m.team = :team")
+                    .setParameter("team", team)
+                    .getResultList());
+            bh.consume(em.createQuery("select m from Member m where m.team.id = :teamId")
+                    .setParameter("teamId", teamId)
+                    .getResultList());
+        } finally {
+            em.close();
+        }
+    }
+
+    private String randomUsername() {
+        return "member" + (1 + ThreadLocalRandom.current().nextInt(members));
+    }
+
+    /**
+     * 자주 조회되는 상위 100명 중 한 명
+     */
+    private String randomHotUsername() {
+        return "member" + (1 + ThreadLocalRandom.current().nextInt(Math.min(members, 100)));
+    }
+
+    private String randomTeamName() {
+        return "팀" + (1 + ThreadLocalRandom.current().nextInt(teams));
+    }
+}
@@ -0,0 +1,64 @@
+package benchmark;
+
+import entity.Order;
+import org.openjdk.jmh.annotations.*;
+import query.ReadOnlyQueries;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 일반 조회와 읽기 전용 조회 비교
+ * 주문 전체를 조회하고 커밋(flush)까지의 시간과 할당량(-prof gc)을 본다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ReadOnlyBenchmark {
+
+    @Param({"100000"})
+    public int orders;
+
+    private BenchmarkDatabase database;
+    private EntityManagerFactory emf;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = new BenchmarkDatabase("read_only");
+        emf = database.createEntityManagerFactory();
+        database.seed(10, 1_000, 100, orders);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        emf.close();
+        database.drop();
+    }
+
+    @Benchmark
+    public int managed() {
+        return loadAndCommit(emf.createEntityManager());
+    }
+
+    @Benchmark
+    public int readOnly() {
+        return loadAndCommit(ReadOnlyQueries.createEntityManager(emf));
+    }
+
+    private int loadAndCommit(EntityManager em) {
+        try {
+            em.getTransaction().begin();
+            List<Order> resultList = em.createQuery("SELECT o FROM Order o", Order.class).getResultList();
+            em.getTransaction().commit();
+            return resultList.size();
+        } finally {
+            em.close();
+        }
+    }
+}
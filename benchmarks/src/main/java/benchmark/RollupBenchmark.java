@@ -0,0 +1,146 @@
+package benchmark;
+
+import entity.Member;
+import entity.MemberStats;
+import entity.Order;
+import entity.Product;
+import entity.ProductStats;
+import entity.TeamStats;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 집계 쿼리와 집계 테이블 조회 비교
+ * - *Query : 서브쿼리 예제(Main.testSubQuery)처럼 원본 테이블을 매번 집계
+ * - *Rollup : 집계 테이블에서 식별자로 조회
+ * - placeOrder : 주문 저장 (집계 테이블 갱신 포함) 비용
+ *
+ * java -jar target/benchmarks.jar RollupBenchmark -p orders=100000,1000000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RollupBenchmark {
+
+    @Param({"100000"})
+    public int members;
+
+    @Param({"1000"})
+    public int products;
+
+    @Param({"1000000"})
+    public int orders;
+
+    private static final int TEAMS = 100;
+
+    private BenchmarkDatabase database;
+    private EntityManagerFactory emf;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = new BenchmarkDatabase("rollup");
+        emf = database.createEntityManagerFactory();
+        database.seed(TEAMS, members, products, orders);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        emf.close();
+        database.drop();
+    }
+
+    @Benchmark
+    public void teamAverageAgeQuery(Blackhole bh) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            bh.consume(em.createQuery("select avg(m.age) from Member m where m.team.id = :teamId", Double.class)
+                    .setParameter("teamId", randomId(TEAMS))
+                    .getSingleResult());
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public void teamAverageAgeRollup(Blackhole bh) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            bh.consume(em.find(TeamStats.class, randomId(TEAMS)).getAverageAge());
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public void memberOrderCountQuery(Blackhole bh) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            bh.consume(em.createQuery("select count(o) from Order o where o.member.id = :memberId", Long.class)
+                    .setParameter("memberId", randomId(members))
+                    .getSingleResult());
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public void memberOrderCountRollup(Blackhole bh) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            bh.consume(em.find(MemberStats.class, randomId(members)).getOrderCount());
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public void productOrderedAmountQuery(Blackhole bh) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            bh.consume(em.createQuery("select sum(o.orderAmount) from Order o where o.product.id = :productId", Long.class)
+                    .setParameter("productId", randomId(products))
+                    .getSingleResult());
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public void productOrderedAmountRollup(Blackhole bh) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            bh.consume(em.find(ProductStats.class, randomId(products)).getOrderedAmount());
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public void placeOrder() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            Order order = new Order();
+            order.setOrderAmount(1 + ThreadLocalRandom.current().nextInt(10));
+            order.setMember(em.getReference(Member.class, randomId(members)));
+            order.setProduct(em.getReference(Product.class, randomId(products)));
+            em.persist(order);
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    private static Long randomId(int count) {
+        return (long) (1 + ThreadLocalRandom.current().nextInt(count));
+    }
+}
@@ -0,0 +1,30 @@
+package benchmark;
+
+import org.hibernate.CustomEntityDirtinessStrategy;
+import org.hibernate.Session;
+import org.hibernate.persister.entity.EntityPersister;
+
+/**
+ * 하이버네이트 기본 방식(모든 엔티티를 스냅샷과 비교)으로 되돌린다. FlushBenchmark의 비교 대상
+ */
+public class SnapshotDirtinessStrategy implements CustomEntityDirtinessStrategy {
+
+    @Override
+    public boolean canDirtyCheck(Object entity, EntityPersister persister, Session session) {
+        return false;
+    }
+
+    @Override
+    public boolean isDirty(Object entity, EntityPersister persister, Session session) {
+        return false;
+    }
+
+    @Override
+    public void resetDirty(Object entity, EntityPersister persister, Session session) {
+    }
+
+    @Override
+    public void findDirty(Object entity, EntityPersister persister, Session session,
+                          DirtyCheckContext dirtyCheckContext) {
+    }
+}
@@ -0,0 +1,72 @@
+package benchmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import entity.Member;
+import org.openjdk.jmh.annotations.*;
+import persistence.JpaBootstrap;
+import persistence.StartupCheck;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 시작 시간 벤치마크 : 영속성 유닛을 띄우고 첫 쿼리 결과를 받을 때까지 걸린 시간 (time-to-first-query)
+ * - fastStartup=false : persistence.xml 설정 그대로 (스키마 생성, JDBC 메타데이터 조회, 이름 있는 쿼리 검증)
+ * - fastStartup=true : JpaBootstrap.fastStartupOverrides() (빌드 단계 StartupCheck 결과 사용)
+ *
+ * 포크마다 한 번만 측정하므로 클래스 로딩과 JIT 전 상태의 시간이다.
+ * fastStartup=true는 StartupCheck가 만든 스키마 DDL로 미리 테이블을 만들어 둔다.
+ * AppCDS 효과는 mvn package -Pappcds로 만든 아카이브를 넘겨서 비교한다.
+ *
+ * java -jar target/benchmarks.jar StartupBenchmark -jvmArgsAppend -XX:SharedArchiveFile=../target/jpa_lab_8_1.jsa
+ * (아카이브는 만들 때와 같은 클래스패스여야 사용된다. 다르면 경고 없이 무시되므로 -Xshare:on으로 확인한다.)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class StartupBenchmark {
+
+    @Param({"false", "true"})
+    public boolean fastStartup;
+
+    private BenchmarkDatabase database;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = new BenchmarkDatabase("startup");
+        if (fastStartup) {
+            try (Connection connection = database.connection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("RUNSCRIPT FROM 'classpath:/" + StartupCheck.SCHEMA_RESOURCE + "'");
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        database.drop();
+    }
+
+    @Benchmark
+    public List<Member> firstQuery() {
+        HikariConfig config = JpaBootstrap.defaultPoolConfig();
+        config.setJdbcUrl(database.getUrl());
+        Map<String, Object> properties = new HashMap<String, Object>(database.properties());
+        if (fastStartup) {
+            properties.putAll(JpaBootstrap.fastStartupOverrides());
+        }
+        try (JpaBootstrap bootstrap = new JpaBootstrap(config, properties)) {
+            return bootstrap.inTransaction(em -> em.createNamedQuery("Member.findByUsername", Member.class)
+                    .setParameter("username", "member1")
+                    .getResultList());
+        }
+    }
+}
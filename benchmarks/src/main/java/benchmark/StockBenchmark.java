@@ -0,0 +1,86 @@
+package benchmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import org.openjdk.jmh.annotations.*;
+import persistence.JpaBootstrap;
+import stock.StockReservation;
+import stock.StripedStockBuffer;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 한 상품에 주문이 몰릴 때 재고 차감 방식별 처리량(주문/초)과 충돌률
+ * - version : 낙관적 락 + 재시도
+ * - conditional : 조건부 UPDATE
+ * - striped : StripedStockBuffer (blockSize씩 미리 가져와서 메모리에서 차감)
+ *
+ * 충돌률(충돌 수 / 시도 수)은 트라이얼이 끝날 때 출력한다.
+ *
+ * java -jar target/benchmarks.jar StockBenchmark -t 16
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(16)
+public class StockBenchmark {
+
+    private static final long HOT_PRODUCT = 1L;
+
+    @Param({"version", "conditional", "striped"})
+    public String strategy;
+
+    @Param({"16"})
+    public int poolSize;
+
+    @Param({"100"})
+    public int blockSize;
+
+    private BenchmarkDatabase database;
+    private JpaBootstrap bootstrap;
+    private StockReservation reservation;
+    private StripedStockBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = BenchmarkDatabase.server("stock", 9094);
+        HikariConfig config = JpaBootstrap.defaultPoolConfig();
+        config.setJdbcUrl(database.getUrl());
+        config.setMaximumPoolSize(poolSize);
+        bootstrap = new JpaBootstrap(config, database.properties());
+        database.seed(1, 1, 10, 0);
+        try (Connection connection = database.connection();
+             Statement statement = connection.createStatement()) {
+            // 측정 중에 재고가 바닥나지 않게 한다.
+            statement.executeUpdate("UPDATE PRODUCT SET STOCKAMOUNT = " + (Integer.MAX_VALUE / 2) + " WHERE ID = " + HOT_PRODUCT);
+        }
+        reservation = new StockReservation(bootstrap, 10, 1, 50, TimeUnit.MILLISECONDS);
+        buffer = new StripedStockBuffer(reservation, HOT_PRODUCT, 16, blockSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        buffer.close();
+        System.out.printf("%n%s: attempts=%d conflicts=%d conflictRate=%.4f%n", strategy,
+                reservation.getAttemptCount(), reservation.getConflictCount(), reservation.getConflictRate());
+        bootstrap.close();
+        database.drop();
+    }
+
+    @Benchmark
+    public Object order() {
+        switch (strategy) {
+            case "version":
+                return reservation.reserveWithVersion(HOT_PRODUCT, 1);
+            case "conditional":
+                return reservation.reserve(HOT_PRODUCT, 1);
+            default:
+                return buffer.reserve(1);
+        }
+    }
+}
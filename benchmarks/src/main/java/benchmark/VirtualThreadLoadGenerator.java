@@ -0,0 +1,110 @@
+package benchmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import concurrent.UnitOfWorkExecutor;
+import entity.Member;
+import entity.Team;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import persistence.JpaBootstrap;
+
+import javax.persistence.EntityManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 가상 스레드와 플랫폼 스레드 풀 부하 비교
+ *
+ * 같은 요청(bindParams, innerJoin, selectByEntity 섞어서)을 두 실행기에 보내고
+ * 처리량과 지연 시간 분포(p50, p99, p99.9)를 출력한다.
+ * 두 실행기 모두 동시 데이터베이스 작업 수는 커넥션 풀 크기로 제한한다.
+ *
+ * java -cp target/benchmarks.jar benchmark.VirtualThreadLoadGenerator [요청 수] [풀 크기] [플랫폼 스레드 수]
+ */
+public class VirtualThreadLoadGenerator {
+
+    private static final int MEMBERS = 10_000;
+    private static final int TEAMS = 100;
+
+    public static void main(String[] args) throws SQLException {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int poolSize = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int platformThreads = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        BenchmarkDatabase database = BenchmarkDatabase.server("load", 9093);
+        HikariConfig config = JpaBootstrap.defaultPoolConfig();
+        config.setJdbcUrl(database.getUrl());
+        config.setMaximumPoolSize(poolSize);
+
+        try (JpaBootstrap bootstrap = new JpaBootstrap(config, database.properties())) {
+            database.seed(TEAMS, MEMBERS, 100, 0);
+
+            // 워밍업
+            try (UnitOfWorkExecutor executor = new UnitOfWorkExecutor(bootstrap)) {
+                run(executor, requests / 10);
+            }
+
+            try (UnitOfWorkExecutor executor = new UnitOfWorkExecutor(
+                    bootstrap, Executors.newFixedThreadPool(platformThreads), poolSize)) {
+                print("platform(" + platformThreads + ")", requests, run(executor, requests));
+            }
+            try (UnitOfWorkExecutor executor = new UnitOfWorkExecutor(bootstrap)) {
+                print("virtual", requests, run(executor, requests));
+            }
+        } finally {
+            database.drop();
+        }
+    }
+
+    private static Result run(UnitOfWorkExecutor executor, int requests) {
+        Recorder recorder = new Recorder(3);
+        List<CompletableFuture<?>> futures = new ArrayList<CompletableFuture<?>>(requests);
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            long submitted = System.nanoTime();
+            futures.add(executor.submit(VirtualThreadLoadGenerator::request)
+                    .whenComplete((result, e) ->
+                            recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - submitted))));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        return new Result(System.nanoTime() - start, recorder.getIntervalHistogram());
+    }
+
+    private static Object request(EntityManager em) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (random.nextInt(3)) {
+            case 0:
+                return em.createNamedQuery("Member.findByUsername", Member.class)
+                        .setParameter("username", "member" + (1 + random.nextInt(MEMBERS)))
+                        .getResultList();
+            case 1:
+                return em.createNamedQuery("Member.findByTeamName", Member.class)
+                        .setParameter("teamName", "팀" + (1 + random.nextInt(TEAMS)))
+                        .getResultList();
+            default:
+                Team team = em.find(Team.class, (long) (1 + random.nextInt(TEAMS)));
+                return em.createNamedQuery("Member.findByTeam", Member.class)
+                        .setParameter("team", team)
+                        .getResultList();
+        }
+    }
+
+    private static void print(String name, int requests, Result result) {
+        Histogram latency = result.latency();
+        System.out.printf("%-14s %10.0f req/s  p50=%6dus  p99=%6dus  p99.9=%6dus  max=%6dus%n",
+                name,
+                requests / (result.elapsedNanos() / 1_000_000_000.0),
+                latency.getValueAtPercentile(50.0),
+                latency.getValueAtPercentile(99.0),
+                latency.getValueAtPercentile(99.9),
+                latency.getMaxValue());
+    }
+
+    private record Result(long elapsedNanos, Histogram latency) {
+    }
+}
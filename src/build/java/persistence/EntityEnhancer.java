@@ -0,0 +1,226 @@
+package persistence;
+
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtField;
+import javassist.LoaderClassPath;
+import javassist.Modifier;
+import org.hibernate.bytecode.buildtime.internal.JavassistInstrumenter;
+import org.hibernate.bytecode.buildtime.spi.Logger;
+import org.hibernate.bytecode.enhance.spi.EnhancementContext;
+import org.hibernate.bytecode.enhance.spi.Enhancer;
+import org.hibernate.bytecode.internal.javassist.FieldHandled;
+import org.hibernate.engine.spi.ManagedEntity;
+
+import javax.persistence.Basic;
+import javax.persistence.ElementCollection;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.ManyToMany;
+import javax.persistence.OneToMany;
+import javax.persistence.Transient;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 빌드 단계의 엔티티 바이트코드 향상
+ *
+ * 메이븐 process-classes 단계에서 StartupCheck보다 먼저 실행해서 클래스 디렉터리의 @Entity 클래스를 고친다.
+ * - 모든 엔티티 : ManagedEntity를 추가해서 영속성 컨텍스트 엔트리를 엔티티에 저장한다. 플러시할 때 맵 조회를 줄인다.
+ * - @Basic(fetch = LAZY) 필드가 있는 엔티티 : FieldHandled를 추가해서 그 필드를 처음 읽을 때 로딩한다.
+ *   (4.3 런타임은 Enhancer가 만드는 PersistentAttributeInterceptable을 쓰지 않는다.)
+ * 변경 필드 추적은 entity.DirtyTrackedEntity와 DirtyTrackingStrategy가 한다.
+ *
+ * hibernate-enhance-maven-plugin 4.3은 이미 읽은 클래스만 찾을 수 있어서 연관 관계나 Address 필드가 있는
+ * 엔티티를 향상하지 못하고, 실패를 로그로만 남긴다. 여기서는 프로젝트 클래스패스 전체로 클래스를 찾고,
+ * 끝나고 나서 모든 엔티티를 다시 읽어 확인한다. 하나라도 향상되지 않았으면 빌드가 실패한다.
+ *
+ * 빌드에만 쓰는 클래스라서 src/build/java에 두고, 애플리케이션 jar에는 넣지 않는다.
+ *
+ * java -cp target/build-classes:target/classes:... persistence.EntityEnhancer target/classes
+ */
+public class EntityEnhancer {
+
+    public static void main(String[] args) throws Exception {
+        Path output = Paths.get(args.length > 0 ? args[0] : "target/classes");
+        ClassLoader loader = EntityEnhancer.class.getClassLoader();
+        ClassPool classPool = new ClassPool(true);
+        classPool.appendClassPath(output.toString());
+        classPool.appendClassPath(new LoaderClassPath(loader));
+
+        List<Path> classFiles;
+        try (Stream<Path> files = Files.walk(output)) {
+            classFiles = files.filter(file -> file.toString().endsWith(".class")).collect(Collectors.toList());
+        }
+        Map<String, Path> entities = new LinkedHashMap<String, Path>();
+        Set<String> lazyEntities = new HashSet<String>();
+        for (Path classFile : classFiles) {
+            CtClass ctClass = classPool.get(className(output, classFile));
+            if (ctClass.hasAnnotation(Entity.class)) {
+                entities.put(ctClass.getName(), classFile);
+                if (hasLazyAttributes(ctClass)) {
+                    lazyEntities.add(ctClass.getName());
+                }
+            }
+        }
+
+        // 증분 빌드에서 다시 컴파일하지 않은 클래스는 이미 향상되어 있다.
+        Enhancer enhancer = new Enhancer(new Context(loader));
+        for (Map.Entry<String, Path> entity : entities.entrySet()) {
+            byte[] bytecode = Files.readAllBytes(entity.getValue());
+            if (!implementsInterface(bytecode, ManagedEntity.class)) {
+                Files.write(entity.getValue(), enhancer.enhance(entity.getKey(), bytecode));
+            }
+        }
+        Set<File> lazyFiles = new HashSet<File>();
+        for (String lazyEntity : lazyEntities) {
+            lazyFiles.add(entities.get(lazyEntity).toFile());
+        }
+        if (!lazyFiles.isEmpty()) {
+            new JavassistInstrumenter(new ConsoleLogger(), () -> false).execute(lazyFiles);
+        }
+
+        List<String> failed = new ArrayList<String>();
+        for (Map.Entry<String, Path> entity : entities.entrySet()) {
+            byte[] bytecode = Files.readAllBytes(entity.getValue());
+            if (!implementsInterface(bytecode, ManagedEntity.class)
+                    || lazyEntities.contains(entity.getKey()) && !implementsInterface(bytecode, FieldHandled.class)) {
+                failed.add(entity.getKey());
+            }
+        }
+        if (!failed.isEmpty()) {
+            throw new IllegalStateException("Entity enhancement failed: " + failed);
+        }
+        System.out.println("Enhanced " + entities.size() + " entity classes (lazy attributes: " + lazyEntities + ") in " + output);
+    }
+
+    private static String className(Path output, Path classFile) {
+        String relative = output.relativize(classFile).toString();
+        return relative.substring(0, relative.length() - ".class".length())
+                .replace(classFile.getFileSystem().getSeparator(), ".");
+    }
+
+    private static boolean hasLazyAttributes(CtClass ctClass) throws ClassNotFoundException {
+        for (CtField field : ctClass.getDeclaredFields()) {
+            Basic basic = (Basic) field.getAnnotation(Basic.class);
+            if (basic != null && basic.fetch() == FetchType.LAZY) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 파일에 쓴 바이트코드를 새 ClassPool로 읽어서 확인한다. (읽어 둔 CtClass는 향상 전 상태다.)
+     */
+    private static boolean implementsInterface(byte[] bytecode, Class<?> type) throws Exception {
+        CtClass ctClass = new ClassPool(true).makeClass(new ByteArrayInputStream(bytecode));
+        try {
+            for (String implemented : ctClass.getClassFile().getInterfaces()) {
+                if (implemented.equals(type.getName())) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            ctClass.detach();
+        }
+    }
+
+    /**
+     * ManagedEntity만 추가한다. 지연 로딩은 JavassistInstrumenter가, 변경 추적은 DirtyTrackingStrategy가 한다.
+     */
+    private static class Context implements EnhancementContext {
+
+        private final ClassLoader loader;
+
+        Context(ClassLoader loader) {
+            this.loader = loader;
+        }
+
+        @Override
+        public ClassLoader getLoadingClassLoader() {
+            return loader;
+        }
+
+        @Override
+        public boolean isEntityClass(CtClass classDescriptor) {
+            return classDescriptor.hasAnnotation(Entity.class);
+        }
+
+        @Override
+        public boolean isCompositeClass(CtClass classDescriptor) {
+            return false;
+        }
+
+        @Override
+        public boolean doDirtyCheckingInline(CtClass classDescriptor) {
+            return false;
+        }
+
+        @Override
+        public boolean hasLazyLoadableAttributes(CtClass classDescriptor) {
+            return false;
+        }
+
+        @Override
+        public boolean isPersistentField(CtField ctField) {
+            int modifiers = ctField.getModifiers();
+            return !Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)
+                    && !ctField.hasAnnotation(Transient.class);
+        }
+
+        @Override
+        public CtField[] order(CtField[] persistentFields) {
+            return persistentFields;
+        }
+
+        @Override
+        public boolean isLazyLoadable(CtField field) {
+            return false;
+        }
+
+        @Override
+        public boolean isMappedCollection(CtField field) {
+            return field.hasAnnotation(OneToMany.class) || field.hasAnnotation(ManyToMany.class)
+                    || field.hasAnnotation(ElementCollection.class);
+        }
+    }
+
+    private static class ConsoleLogger implements Logger {
+
+        @Override
+        public void trace(String message) {
+        }
+
+        @Override
+        public void debug(String message) {
+        }
+
+        @Override
+        public void info(String message) {
+            System.out.println(message);
+        }
+
+        @Override
+        public void warn(String message) {
+            System.err.println(message);
+        }
+
+        @Override
+        public void error(String message) {
+            System.err.println(message);
+        }
+    }
+}
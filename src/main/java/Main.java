@@ -1,25 +1,44 @@
+import concurrent.AsyncQueries;
+import dto.MemberSummary;
+import dto.OrderLine;
 import entity.Address;
 import entity.Member;
 import entity.Product;
 import entity.Team;
+import monitor.QueryInstrumentation;
+import persistence.JpaBootstrap;
+import query.DtoProjection;
+import query.FetchPlans;
+import query.KeysetPaginator;
+import query.Page;
+import query.QueryCaching;
+import query.ReadOnlyQueries;
+import query.ResultStreams;
 
 import javax.persistence.*;
 import java.sql.SQLOutput;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 public class Main {
 
     public static void main(String[] args) {
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory("jpa_lab_8_1");
-        EntityManager em = emf.createEntityManager();
-        EntityTransaction et = em.getTransaction();
-        et.begin();
-
-        typeQuery(em);
-        query(em);
-        bindParams(em, "member1");
-        locateParams(em, "member1");
+        // 커넥션 풀과 엔티티 매니저 팩토리는 애플리케이션 전체에서 하나만 만들고 종료할 때 닫는다.
+        try (JpaBootstrap bootstrap = new JpaBootstrap();
+             QueryInstrumentation instrumentation = new QueryInstrumentation()) {
+            // 엔티티 매니저와 트랜잭션은 작업 단위로 열고, 끝나면 커밋(예외 시 롤백)하고 닫는다.
+            // 감싼 엔티티 매니저로 실행한 쿼리는 쿼리별 실행 횟수와 지연 시간을 기록한다.
+            bootstrap.runInTransaction(raw -> {
+                EntityManager em = instrumentation.wrap(raw);
+                typeQuery(em);
+                query(em);
+                bindParams(em, "member1");
+                locateParams(em, "member1");
+            });
+            instrumentation.dump();
+        }
     }
 
     /**
@@ -39,6 +58,13 @@ public class Main {
         for(Member member: resultList) {
             System.out.println("member = " + member);
         }
+
+        // 결과가 많으면 getResultList() 대신 스트림으로 읽는다.
+        // JDBC 커서로 나눠 읽고, 일정 건수마다 영속성 컨텍스트를 비워서 메모리 사용량이 일정하다.
+        try (Stream<Member> members =
+                     ResultStreams.stream(em, em.createQuery("SELECT m FROM Member m", Member.class))) {
+            members.forEach(member -> System.out.println("member = " + member));
+        }
     }
 
 
@@ -58,6 +84,14 @@ public class Main {
             System.out.println("username = " + result[0]);
             System.out.println("age = " + result[1]);
         }
+
+        // 조회 대상이 명확하지 않아도 DTO(레코드)로 바로 받을 수 있다.
+        List<MemberSummary> summaries = DtoProjection.of(MemberSummary.class)
+                .getResultList(em.createQuery("SELECT m.username, m.age FROM Member m"));
+        for (MemberSummary summary : summaries) {
+            System.out.println("username = " + summary.username());
+            System.out.println("age = " + summary.age());
+        }
     }
 
     /**
@@ -85,6 +119,20 @@ public class Main {
         List<Member> members = em.createQuery("SELECT m FROM Member m where m.username = :username", Member.class)
                 .setParameter("username", usernameParam)
                 .getResultList();
+
+        // 이름 있는 쿼리 활용
+        // Member 엔티티에 @NamedQuery로 선언한 쿼리는 엔티티 매니저 팩토리를 만들 때 한 번만 파싱하고 검증한다.
+        // 요청마다 JPQL 파싱, SQL 변환 없이 파라미터 바인딩과 실행만 한다.
+        List<Member> namedMembers = em.createNamedQuery("Member.findByUsername", Member.class)
+                .setParameter("username", usernameParam)
+                .getResultList();
+
+        // 같은 이름을 반복해서 조회한다면 결과를 캐시한다.
+        // (쿼리, 파라미터)가 같으면 데이터베이스를 거치지 않고, 회원을 수정하면 자동으로 무효화된다.
+        List<Member> cachedMembers = QueryCaching.cacheable(
+                        em.createNamedQuery("Member.findByUsername", Member.class), QueryCaching.MEMBER_BY_USERNAME)
+                .setParameter("username", usernameParam)
+                .getResultList();
     }
 
     /**
@@ -97,6 +145,11 @@ public class Main {
         List<Member> members = em.createQuery("SELECT m FROM Member m where m.username = ?1", Member.class)
                 .setParameter(1, usernameParam)
                 .getResultList();
+
+        // 이름 있는 쿼리도 위치 기준 파라미터를 사용할 수 있다.
+        List<Member> namedMembers = em.createNamedQuery("Member.findByUsernamePosition", Member.class)
+                .setParameter(1, usernameParam)
+                .getResultList();
     }
 
     /**
@@ -164,6 +217,17 @@ public class Main {
             Product product = (Product)row[1];
             Integer age = (Integer) row[2];
         }
+
+        // 위의 소스를 간결하게 수정 2
+        // Object[]를 캐스팅하지 않고 DTO 생성자로 바로 변환한다.
+        List<OrderLine> orderLines = DtoProjection.of(OrderLine.class)
+                .getResultList(em.createQuery("SELECT o.member, o.product, o.orderAmount FROM Order o"));
+
+        for (OrderLine orderLine : orderLines) {
+            Member member = orderLine.member();
+            Product product = orderLine.product();
+            int orderAmount = orderLine.orderAmount();
+        }
     }
 
     /**
@@ -185,6 +249,29 @@ public class Main {
         query.getResultList();
     }
 
+    /**
+     * 키셋 페이징
+     * setFirstResult()는 건너뛸 데이터를 모두 읽고 버리므로 뒤 페이지로 갈수록 느려진다.
+     * 이전 페이지의 마지막 (username, id)를 커서로 넘기면 그 다음부터 바로 조회한다.
+     * @param em
+     */
+    public static void setKeysetPagingInfo(EntityManager em) {
+
+        KeysetPaginator<Member> paginator =
+                new KeysetPaginator<Member>(em, Member.class, "username", true);
+
+        // 첫 페이지는 커서 없이 조회한다.
+        Page<Member> page = paginator.page(em, null, 20);
+        for (Member member : page.getContent()) {
+            System.out.println("member = " + member.getUsername());
+        }
+
+        // 다음 페이지는 이전 페이지가 돌려준 커서로 조회한다.
+        if (page.hasNext()) {
+            Page<Member> nextPage = paginator.page(em, page.getNextCursor(), 20);
+        }
+    }
+
     /**
      * 내부 조인은 INNER JOIN을 사용한다. INNER는 생략할 수있다.\
      * 외부 조인은 LEFT OUTER JOIN을 사용한다. OUTER는 생략 가능해서 보통 LEFT JOIN으로 사용한다.
@@ -201,6 +288,12 @@ public class Main {
                 .setParameter("teamName", teamName)
                 .getResultList();
 
+        // 조회만 하고 수정하지 않는다면 읽기 전용으로 조회한다.
+        // 스냅샷을 보관하지 않고 flush 시점의 변경 감지 대상에서도 빠진다.
+        List<Member> readOnlyList = ReadOnlyQueries.readOnly(em.createQuery(query, Member.class))
+                .setParameter("teamName", teamName)
+                .getResultList();
+
 
         String query2 = "SELECT m, t FROM Member m JOIN m.team t";
         List<Object[]> resultList2 = em.createQuery(query2).getResultList();
@@ -279,9 +372,20 @@ public class Main {
 
         for (Member member : members) {
             System.out.println("username = " + member.getUsername() + ", " +
-                    "teamname = " + member.getTeam().name());
+                    "teamname = " + member.getTeam().getName());
         }
 
+        /*
+            페치 플랜(엔티티 그래프)
+
+            연관관계는 모두 지연 로딩으로 매핑했다.
+            JPQL에 join fetch를 쓰지 않아도 이름 있는 페치 플랜을 힌트로 주면 같은 결과를 얻는다.
+            같은 JPQL을 호출하는 곳마다 필요한 그래프만 골라서 조회할 수 있다.
+         */
+        List<Member> membersWithTeam = FetchPlans.apply(em,
+                        em.createQuery("select m from Member m", Member.class), FetchPlans.MEMBER_WITH_TEAM)
+                .getResultList();
+
         /*
             컬렉션 페치 조인
 
@@ -363,6 +467,28 @@ public class Main {
             INNER JOIN MEMBER M ON T.ID=M.TEAM_ID
             WHERE T.NAME = '팀A'
          */
+
+        /*
+            배치 페치
+
+            컬렉션을 페치 조인하면 로우가 중복되고 페이징을 할 수 없다.
+            페치 조인 없이 팀을 조회하고 team.getMembers()를 순회하면 팀마다 SELECT가 한 번씩 실행된다. (N+1)
+            Team.members, Member.orders, Product.orders에는 @BatchSize(size = 100)를 지정해 두었으므로
+            아직 초기화되지 않은 컬렉션을 최대 100개씩 모아서 IN 절 한 번으로 초기화한다.
+
+            SELECT M.*
+            FROM MEMBER M
+            WHERE M.TEAM_ID IN (?, ?, ?, ...)
+         */
+        List<Team> pagedTeams = em.createQuery("select t from Team t", Team.class)
+                .setFirstResult(0)
+                .setMaxResults(100)
+                .getResultList();
+        for (Team team : pagedTeams) {
+            for (Member member : team.getMembers()) {
+                System.out.println("->username = " + member.getUsername());
+            }
+        }
     }
     public static void testPassExpression(EntityManager em) {
 
@@ -431,6 +557,10 @@ public class Main {
             ==
             select m from Member m
             where m.orders.size > 0
+
+            같은 집계를 자주 조회하면 집계 테이블(rollup.RollupEventListener가 관리)에서 식별자로 찾는다.
+            em.find(TeamStats.class, teamId).getAverageAge()
+            em.find(MemberStats.class, memberId).getOrderCount()
          */
 
         /*
@@ -550,6 +680,7 @@ public class Main {
             객체 인스턴스는 참조 값으로 식별하고 테이블 로우는 기본 키 값으로 식별한다.
             JPQL에서 엔티티 객체를 직접 사용하면 SQL에서는 해당 엔티티의 기본 키 값을 사용한다.
          */
+        Member member = em.find(Member.class, 4L);
         String qlString = "select m from Member m where m = :member";
         List resultList = em.createQuery(qlString)
                 .setParameter("member", member)
@@ -583,6 +714,15 @@ public class Main {
             m.team은 현재 team_id라는 외래 키와 매핑되어 있다.
          */
 
+        /*
+            Team은 2차 캐시 대상이라 다른 엔티티 매니저에서도 em.find()가 데이터베이스를 거치지 않는다.
+            같은 쿼리를 이름 있는 쿼리(Member.findByTeam)로 실행하면 쿼리 캐시까지 사용한다.
+            회원이나 팀을 수정하면 캐시된 결과는 자동으로 무효화된다.
+         */
+        List<Member> cachedMembers = em.createNamedQuery("Member.findByTeam", Member.class)
+                .setParameter("team", team)
+                .getResultList();
+
         /*
             외래키에 식별자를 직접 사용하는 코드
          */
@@ -592,6 +732,26 @@ public class Main {
                 .getResultList();
 
     }
+
+    /**
+     * selectByEntity의 네 쿼리는 서로 관계가 없으므로 동시에 실행할 수 있다.
+     * 각 쿼리는 별도의 엔티티 매니저와 커넥션에서 실행되고, 전체 지연 시간은 가장 느린 쿼리 정도가 된다.
+     */
+    public static void selectByEntityAsync(AsyncQueries async) {
+        CompletableFuture<List<Member>> byEntity = async.find(Member.class, 4L)
+                .thenCompose(member -> async.list(em -> em.createQuery(
+                        "select m from Member m where m = :member", Member.class).setParameter("member", member)));
+        CompletableFuture<List<Member>> byId = async.list(em -> em.createQuery(
+                "select m from Member m where m.id = :memberId", Member.class).setParameter("memberId", 4L));
+        // 준영속 팀 엔티티도 파라미터로 쓸 수 있다. (식별자 값만 사용)
+        CompletableFuture<List<Member>> byTeam = async.find(Team.class, 1L)
+                .thenCompose(team -> async.list(em -> em.createQuery(
+                        "select m from Member m where m.team = :team", Member.class).setParameter("team", team)));
+        CompletableFuture<List<Member>> byTeamId = async.list(em -> em.createQuery(
+                "select m from Member m where m.team.id = :teamId", Member.class).setParameter("teamId", 1L));
+
+        CompletableFuture.allOf(byEntity, byId, byTeam, byTeamId).join();
+    }
 }
 
 
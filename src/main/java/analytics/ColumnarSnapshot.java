@@ -0,0 +1,358 @@
+package analytics;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 회원, 주문 컬럼 스냅샷 (대시보드용 집계)
+ *
+ * 집계 JPQL은 엔티티를 하나씩 만들지 않아도 결과를 얻을 수 있는 컬럼 스캔이다.
+ * 여기서는 필요한 컬럼만 JDBC로 읽어 메모리 매핑 파일(IntColumn)에 컬럼별로 저장하고,
+ * 4096건씩 힙 배열로 복사해서 단순 반복문으로 집계한다. (JIT가 SIMD 명령으로 바꿀 수 있는 형태)
+ * - 회원 : id, age, teamId, usernameId (이름은 사전으로 인코딩해서 번호만 저장)
+ * - 주문 : id, memberId, productId, orderAmount
+ * 외래 키가 null이면 0을 저장한다. 식별자는 int 범위여야 한다.
+ *
+ * refresh()는 마지막으로 읽은 식별자보다 큰 로우만 추가로 읽는다.
+ * 수정, 삭제된 로우와 늦게 커밋된 작은 식별자는 반영되지 않으므로 주기적으로 rebuild()한다.
+ * 파일은 프로세스가 쓰는 동안의 임시 저장소이고, close()하면 지운다.
+ *
+ * try (ColumnarSnapshot snapshot = new ColumnarSnapshot(bootstrap.getDataSource(), directory)) {
+ *     snapshot.refresh();
+ *     long[] ageBuckets = snapshot.countMembersByAge(11, 60);  // 10세 이하, 11 ~ 59세, 60세 이상
+ * }
+ */
+public class ColumnarSnapshot implements AutoCloseable {
+
+    private static final int CHUNK = 4096;
+    private static final int FETCH_SIZE = 10_000;
+
+    private final DataSource dataSource;
+
+    private final IntColumn memberId;
+    private final IntColumn memberAge;
+    private final IntColumn memberTeamId;
+    private final IntColumn memberUsernameId;
+
+    private final IntColumn orderId;
+    private final IntColumn orderMemberId;
+    private final IntColumn orderProductId;
+    private final IntColumn orderAmount;
+
+    private final Map<String, Integer> usernameIds = new HashMap<String, Integer>();
+    private final List<String> usernames = new ArrayList<String>();
+
+    // 모든 컬럼에 쓴 다음 한 번에 바꿔서 읽는 쪽이 건수와 최댓값을 서로 다른 시점으로 보지 않게 한다.
+    private volatile Bounds bounds = Bounds.EMPTY;
+
+    /**
+     * @param dataSource 원본 데이터베이스
+     * @param directory 컬럼 파일을 만들 디렉터리
+     */
+    public ColumnarSnapshot(DataSource dataSource, Path directory) {
+        this.dataSource = dataSource;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.memberId = new IntColumn(directory.resolve("member.id"));
+        this.memberAge = new IntColumn(directory.resolve("member.age"));
+        this.memberTeamId = new IntColumn(directory.resolve("member.team_id"));
+        this.memberUsernameId = new IntColumn(directory.resolve("member.username_id"));
+        this.orderId = new IntColumn(directory.resolve("orders.id"));
+        this.orderMemberId = new IntColumn(directory.resolve("orders.member_id"));
+        this.orderProductId = new IntColumn(directory.resolve("orders.product_id"));
+        this.orderAmount = new IntColumn(directory.resolve("orders.order_amount"));
+    }
+
+    /**
+     * 마지막으로 읽은 식별자 이후에 추가된 회원, 주문을 읽는다.
+     */
+    public synchronized void refresh() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setReadOnly(true);
+            Bounds current = bounds;
+            int lastMember = current.memberRows == 0 ? 0 : memberId.get(current.memberRows - 1);
+            try (PreparedStatement ps = prepare(connection,
+                    "SELECT ID, AGE, TEAM_ID, USERNAME FROM MEMBER WHERE ID > ? ORDER BY ID", lastMember);
+                 ResultSet rs = ps.executeQuery()) {
+                truncate(current.memberRows, memberId, memberAge, memberTeamId, memberUsernameId);
+                int rows = current.memberRows;
+                int maxTeam = current.maxTeamId;
+                int maxMember = current.maxMemberId;
+                while (rs.next()) {
+                    int id = Math.toIntExact(rs.getLong(1));
+                    int teamId = Math.toIntExact(rs.getLong(3));
+                    memberId.append(id);
+                    memberAge.append(rs.getInt(2));
+                    memberTeamId.append(teamId);
+                    memberUsernameId.append(usernameId(rs.getString(4)));
+                    maxMember = Math.max(maxMember, id);
+                    maxTeam = Math.max(maxTeam, teamId);
+                    rows++;
+                }
+                current = new Bounds(rows, current.orderRows, maxMember, maxTeam, current.maxProductId);
+                bounds = current;
+            }
+
+            int lastOrder = current.orderRows == 0 ? 0 : orderId.get(current.orderRows - 1);
+            try (PreparedStatement ps = prepare(connection,
+                    "SELECT ID, MEMBER_ID, PRODUCT_ID, ORDERAMOUNT FROM ORDERS WHERE ID > ? ORDER BY ID", lastOrder);
+                 ResultSet rs = ps.executeQuery()) {
+                truncate(current.orderRows, orderId, orderMemberId, orderProductId, orderAmount);
+                int rows = current.orderRows;
+                int maxProduct = current.maxProductId;
+                while (rs.next()) {
+                    int productId = Math.toIntExact(rs.getLong(3));
+                    orderId.append(Math.toIntExact(rs.getLong(1)));
+                    orderMemberId.append(Math.toIntExact(rs.getLong(2)));
+                    orderProductId.append(productId);
+                    orderAmount.append(rs.getInt(4));
+                    maxProduct = Math.max(maxProduct, productId);
+                    rows++;
+                }
+                bounds = new Bounds(current.memberRows, rows, current.maxMemberId, current.maxTeamId, maxProduct);
+            }
+        }
+    }
+
+    /**
+     * 비우고 처음부터 다시 읽는다. 다시 읽는 동안 조회하면 빈 결과나 일부만 읽은 결과가 나온다.
+     */
+    public synchronized void rebuild() throws SQLException {
+        bounds = Bounds.EMPTY;
+        truncate(0, columns());
+        usernameIds.clear();
+        usernames.clear();
+        refresh();
+    }
+
+    /**
+     * 이전 refresh()가 중간에 실패해서 건수보다 더 쓴 값을 버린다.
+     */
+    private static void truncate(int rows, IntColumn... columns) {
+        for (IntColumn column : columns) {
+            column.truncate(rows);
+        }
+    }
+
+    private static PreparedStatement prepare(Connection connection, String sql, int after) throws SQLException {
+        PreparedStatement ps = connection.prepareStatement(sql);
+        ps.setFetchSize(FETCH_SIZE);
+        ps.setInt(1, after);
+        return ps;
+    }
+
+    private int usernameId(String username) {
+        Integer id = usernameIds.get(username);
+        if (id == null) {
+            id = usernames.size();
+            usernames.add(username);
+            usernameIds.put(username, id);
+        }
+        return id;
+    }
+
+    public int getMemberCount() {
+        return bounds.memberRows;
+    }
+
+    public int getOrderCount() {
+        return bounds.orderRows;
+    }
+
+    /**
+     * select count(distinct m.username) from Member m
+     * SQL처럼 null은 세지 않는다. (사전에는 null도 번호 하나로 들어 있다.)
+     */
+    public synchronized int distinctUsernames() {
+        return usernameIds.containsKey(null) ? usernames.size() - 1 : usernames.size();
+    }
+
+    public synchronized String username(int usernameId) {
+        return usernames.get(usernameId);
+    }
+
+    /**
+     * 나이 구간별 회원 수 (CASE 식 구간과 같은 집계)
+     * @param upperBounds 구간 상한 (미포함, 오름차순)
+     * @return upperBounds.length + 1개 구간의 회원 수. 마지막은 마지막 상한 이상
+     */
+    public long[] countMembersByAge(int... upperBounds) {
+        for (int b = 1; b < upperBounds.length; b++) {
+            if (upperBounds[b - 1] > upperBounds[b]) {
+                throw new IllegalArgumentException("upperBounds must be ascending: " + Arrays.toString(upperBounds));
+            }
+        }
+        int rows = bounds.memberRows;
+        long[] below = new long[upperBounds.length];
+        scan(rows, new IntColumn[]{memberAge}, (chunk, length) -> {
+            int[] ages = chunk[0];
+            for (int b = 0; b < upperBounds.length; b++) {
+                int bound = upperBounds[b];
+                int count = 0;
+                for (int i = 0; i < length; i++) {
+                    count += ages[i] < bound ? 1 : 0;
+                }
+                below[b] += count;
+            }
+        });
+        long[] counts = new long[upperBounds.length + 1];
+        long previous = 0;
+        for (int b = 0; b < below.length; b++) {
+            counts[b] = below[b] - previous;
+            previous = below[b];
+        }
+        counts[upperBounds.length] = rows - previous;
+        return counts;
+    }
+
+    /**
+     * select count(m) from Member m where m.age between :minAge and :maxAge
+     */
+    public long countMembers(int minAge, int maxAge) {
+        long[] total = new long[1];
+        scan(bounds.memberRows, new IntColumn[]{memberAge}, (chunk, length) -> {
+            int[] ages = chunk[0];
+            int count = 0;
+            for (int i = 0; i < length; i++) {
+                count += (ages[i] >= minAge & ages[i] <= maxAge) ? 1 : 0;
+            }
+            total[0] += count;
+        });
+        return total[0];
+    }
+
+    /**
+     * select sum(o.orderAmount) from Order o
+     */
+    public long sumOrderAmount() {
+        long[] total = new long[1];
+        scan(bounds.orderRows, new IntColumn[]{orderAmount}, (chunk, length) -> {
+            int[] amounts = chunk[0];
+            long sum = 0;
+            for (int i = 0; i < length; i++) {
+                sum += amounts[i];
+            }
+            total[0] += sum;
+        });
+        return total[0];
+    }
+
+    /**
+     * select o.product.id, sum(o.orderAmount) from Order o group by o.product.id
+     * @return 상품 식별자를 인덱스로 하는 주문 수량 합
+     */
+    public long[] sumOrderAmountByProduct() {
+        Bounds current = bounds;
+        long[] sums = new long[current.maxProductId + 1];
+        scan(current.orderRows, new IntColumn[]{orderProductId, orderAmount}, (chunk, length) -> {
+            int[] products = chunk[0];
+            int[] amounts = chunk[1];
+            for (int i = 0; i < length; i++) {
+                int product = products[i];
+                // 조회 중에 rebuild()가 덮어쓴 로우는 읽을 때의 최댓값보다 클 수 있다.
+                if (product < sums.length) {
+                    sums[product] += amounts[i];
+                }
+            }
+        });
+        return sums;
+    }
+
+    /**
+     * select m.team.id, sum(o.orderAmount) from Order o join o.member m group by m.team.id
+     * 회원 식별자 -> 팀 식별자 배열을 먼저 만들고 주문을 한 번 훑는다. (해시 조인과 같은 방식)
+     * @return 팀 식별자를 인덱스로 하는 주문 수량 합
+     */
+    public long[] sumOrderAmountByTeam() {
+        Bounds current = bounds;
+        int[] teamOfMember = new int[current.maxMemberId + 1];
+        long[] sums = new long[current.maxTeamId + 1];
+        scan(current.memberRows, new IntColumn[]{memberId, memberTeamId}, (chunk, length) -> {
+            int[] ids = chunk[0];
+            int[] teams = chunk[1];
+            for (int i = 0; i < length; i++) {
+                // 조회 중에 rebuild()가 덮어쓴 로우는 읽을 때의 최댓값보다 클 수 있다. (0 : 팀 없음)
+                if (ids[i] < teamOfMember.length) {
+                    teamOfMember[ids[i]] = teams[i] < sums.length ? teams[i] : 0;
+                }
+            }
+        });
+        scan(current.orderRows, new IntColumn[]{orderMemberId, orderAmount}, (chunk, length) -> {
+            int[] memberIds = chunk[0];
+            int[] amounts = chunk[1];
+            for (int i = 0; i < length; i++) {
+                int member = memberIds[i];
+                // 스냅샷보다 나중에 추가된 회원의 주문은 팀을 모른다. (0 : 팀 없음)
+                sums[member < teamOfMember.length ? teamOfMember[member] : 0] += amounts[i];
+            }
+        });
+        return sums;
+    }
+
+    /**
+     * 읽는 쪽이 한 번에 보는 건수와 최댓값 (불변)
+     */
+    private static final class Bounds {
+
+        static final Bounds EMPTY = new Bounds(0, 0, 0, 0, 0);
+
+        final int memberRows;
+        final int orderRows;
+        final int maxMemberId;
+        final int maxTeamId;
+        final int maxProductId;
+
+        Bounds(int memberRows, int orderRows, int maxMemberId, int maxTeamId, int maxProductId) {
+            this.memberRows = memberRows;
+            this.orderRows = orderRows;
+            this.maxMemberId = maxMemberId;
+            this.maxTeamId = maxTeamId;
+            this.maxProductId = maxProductId;
+        }
+    }
+
+    private interface ChunkVisitor {
+        void visit(int[][] chunk, int length);
+    }
+
+    /**
+     * 0부터 rows까지 컬럼들을 CHUNK건씩 같은 범위로 복사해서 넘긴다.
+     */
+    private static void scan(int rows, IntColumn[] columns, ChunkVisitor visitor) {
+        int[][] chunk = new int[columns.length][CHUNK];
+        for (int row = 0; row < rows; row += CHUNK) {
+            int length = Math.min(CHUNK, rows - row);
+            for (int c = 0; c < columns.length; c++) {
+                columns[c].copy(row, chunk[c], length);
+            }
+            visitor.visit(chunk, length);
+        }
+    }
+
+    private IntColumn[] columns() {
+        return new IntColumn[]{memberId, memberAge, memberTeamId, memberUsernameId,
+                orderId, orderMemberId, orderProductId, orderAmount};
+    }
+
+    @Override
+    public synchronized void close() {
+        for (IntColumn column : columns()) {
+            column.close();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package analytics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 메모리 매핑 파일에 저장하는 int 컬럼
+ *
+ * 값은 자바 힙 밖(페이지 캐시)에 있으므로 수천만 건도 GC 대상이 아니다.
+ * 쓰기(append)는 한 스레드만 하고, 읽기는 여러 스레드가 동시에 할 수 있다.
+ * 읽는 쪽은 size()를 먼저 읽고 그 범위 안에서만 읽는다. (값을 쓴 다음 size를 늘린다.)
+ */
+final class IntColumn implements AutoCloseable {
+
+    private static final int INITIAL_CAPACITY = 1 << 16;
+
+    private final Path file;
+    private final FileChannel channel;
+    private volatile IntBuffer values;
+    private volatile int size;
+
+    IntColumn(Path file) {
+        this.file = file;
+        try {
+            this.channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.values = map(INITIAL_CAPACITY);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(int row) {
+        return values.get(row);
+    }
+
+    void append(int value) {
+        IntBuffer current = values;
+        if (size == current.capacity()) {
+            current = grow(current.capacity() * 2);
+        }
+        current.put(size, value);
+        size++;
+    }
+
+    /**
+     * row부터 length개를 힙 배열로 복사한다. (메모리 복사라서 값마다 get()하는 것보다 빠르다.)
+     */
+    void copy(int row, int[] target, int length) {
+        values.get(row, target, 0, length);
+    }
+
+    void truncate(int rows) {
+        if (rows < size) {
+            size = rows;
+        }
+    }
+
+    private IntBuffer grow(int capacity) {
+        try {
+            IntBuffer grown = map(capacity);
+            // 이전 매핑으로 읽고 있던 스레드는 그대로 읽을 수 있다. (같은 파일의 앞부분)
+            values = grown;
+            return grown;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private IntBuffer map(int capacity) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * Integer.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asIntBuffer();
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
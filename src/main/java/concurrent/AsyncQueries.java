@@ -0,0 +1,101 @@
+package concurrent;
+
+import query.ReadOnlyQueries;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 비동기 조회
+ *
+ * 서로 관계없는 쿼리를 차례대로 실행하면 지연 시간이 쿼리 지연 시간의 합이 된다.
+ * 여기서는 쿼리마다 UnitOfWorkExecutor로 따로 실행하고(엔티티 매니저, 커넥션도 따로) CompletableFuture로 돌려준다.
+ * 여러 쿼리를 한꺼번에 보내면 가장 느린 쿼리만큼만 기다린다.
+ *
+ * CompletableFuture<List<Member>> byId = async.list(em -> em.createQuery(
+ *         "select m from Member m where m.id = :memberId", Member.class).setParameter("memberId", 4L));
+ * CompletableFuture<List<Member>> byTeam = async.find(Team.class, 1L).thenCompose(team -> async.list(em ->
+ *         em.createQuery("select m from Member m where m.team = :team", Member.class).setParameter("team", team)));
+ * byId.thenCombine(byTeam, ...).join();
+ *
+ * 결과 엔티티는 엔티티 매니저가 닫힌 뒤에 넘어오므로 준영속 상태다. 지연 로딩할 연관은 페치 조인이나 FetchPlans로 함께 조회한다.
+ * 쿼리는 읽기 전용(ReadOnlyQueries)으로 실행한다.
+ *
+ * 처리 중인 요청이 maxInFlight개가 되면 새 요청은 자리가 날 때까지 호출한 스레드에서 기다리고(배압),
+ * admissionTimeout이 지나면 RejectedExecutionException으로 실패한 future를 돌려준다.
+ */
+public class AsyncQueries {
+
+    private final UnitOfWorkExecutor executor;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final long admissionTimeoutNanos;
+
+    /**
+     * 처리 중인 요청은 커넥션 풀 크기의 4배까지, 자리가 나기를 1초까지 기다린다.
+     */
+    public AsyncQueries(UnitOfWorkExecutor executor, int poolSize) {
+        this(executor, poolSize * 4, 1, TimeUnit.SECONDS);
+    }
+
+    public AsyncQueries(UnitOfWorkExecutor executor, int maxInFlight, long admissionTimeout, TimeUnit unit) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+        }
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.admissionTimeoutNanos = unit.toNanos(admissionTimeout);
+    }
+
+    public <T> CompletableFuture<List<T>> list(Function<EntityManager, TypedQuery<T>> query) {
+        return submit(em -> ReadOnlyQueries.readOnly(query.apply(em)).getResultList());
+    }
+
+    public <T> CompletableFuture<T> single(Function<EntityManager, TypedQuery<T>> query) {
+        return submit(em -> ReadOnlyQueries.readOnly(query.apply(em)).getSingleResult());
+    }
+
+    /**
+     * @return 엔티티가 없으면 null로 완료된다.
+     */
+    public <T> CompletableFuture<T> find(Class<T> entityClass, Object id) {
+        return submit(em -> em.find(entityClass, id));
+    }
+
+    /**
+     * 임의의 조회 작업을 실행한다.
+     */
+    public <R> CompletableFuture<R> submit(Function<EntityManager, R> work) {
+        try {
+            if (!inFlight.tryAcquire(admissionTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                return CompletableFuture.failedFuture(new RejectedExecutionException(
+                        "Too many queries in flight: " + maxInFlight));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Interrupted while waiting to submit", e));
+        }
+        CompletableFuture<R> future;
+        try {
+            future = executor.submit(work);
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+        return future.whenComplete((result, e) -> inFlight.release());
+    }
+
+    /**
+     * 처리 중인 요청 수
+     */
+    public int getInFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+}
@@ -0,0 +1,120 @@
+package concurrent;
+
+import persistence.JpaBootstrap;
+import query.IdRange;
+import query.ReadOnlyQueries;
+import query.ResultStreams;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+/**
+ * 식별자 범위로 나눠서 병렬로 조회한다.
+ *
+ * 엔티티의 식별자 범위(min ~ max)를 partitions개 구간으로 나누고,
+ * 구간마다 별도의 엔티티 매니저(커넥션)로 같은 JPQL을 실행한다.
+ * 구간마다 Collector의 누적 컨테이너를 하나씩 만들어 결과를 스트림으로 누적하고, 마지막에 combiner로 합친다.
+ *
+ * JPQL에는 식별자 범위 파라미터 :lo(포함), :hi(미포함)가 있어야 한다.
+ *
+ * long total = scan.scan(Order.class,
+ *         "SELECT o.orderAmount FROM Order o WHERE o.id >= :lo AND o.id < :hi",
+ *         Integer.class, Collectors.summingLong(Integer::longValue));
+ *
+ * 동시에 실행되는 구간 수는 UnitOfWorkExecutor가 커넥션 풀 크기로 제한한다.
+ * 데이터베이스가 한 번에 한 쿼리만 실행하면 병렬로 나눠도 빨라지지 않는다. (H2는 MULTI_THREADED=1 필요)
+ *
+ * 같은 UnitOfWorkExecutor의 작업 안에서 scan()을 호출하면 안 된다.
+ * 바깥 작업이 허가를 쥔 채 구간 작업을 기다리므로, 허가가 모자라면 서로 기다리다 멈춘다. (IllegalStateException)
+ */
+public class PartitionedScan {
+
+    private final JpaBootstrap bootstrap;
+    private final UnitOfWorkExecutor executor;
+    private final int partitions;
+
+    public PartitionedScan(JpaBootstrap bootstrap, UnitOfWorkExecutor executor, int partitions) {
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("partitions must be positive: " + partitions);
+        }
+        this.bootstrap = bootstrap;
+        this.executor = executor;
+        this.partitions = partitions;
+    }
+
+    /**
+     * @param entityClass 식별자 범위를 나눌 엔티티
+     * @param jpql :lo, :hi 파라미터로 식별자 범위를 제한한 JPQL
+     * @param rowType 결과 로우 타입 (여러 값이면 Object[].class)
+     * @param collector 구간별 누적과 합치기
+     */
+    public <T, A, R> R scan(Class<?> entityClass, String jpql, Class<T> rowType,
+                            Collector<? super T, A, R> collector) {
+        if (executor.isRunningUnitOfWork()) {
+            throw new IllegalStateException("scan() must not be called from a unit of work of the same executor");
+        }
+        IdRange range = bootstrap.inTransaction(em -> {
+            checkRowType(em, jpql, rowType);
+            return IdRange.of(em, entityClass);
+        });
+        if (range == null) {
+            return finish(collector, collector.supplier().get());
+        }
+        long min = range.min();
+        long max = range.max();
+        long span = max - min + 1;
+        long chunk = (span + partitions - 1) / partitions;
+
+        BiConsumer<A, ? super T> accumulator = collector.accumulator();
+        List<CompletableFuture<A>> futures = new ArrayList<CompletableFuture<A>>(partitions);
+        for (long lo = min; lo <= max; lo += chunk) {
+            long from = lo;
+            long to = Math.min(lo + chunk, max + 1);
+            futures.add(executor.submit(em -> {
+                A container = collector.supplier().get();
+                TypedQuery<T> query = ReadOnlyQueries.readOnly(em.createQuery(jpql, rowType))
+                        .setParameter("lo", from)
+                        .setParameter("hi", to);
+                try (Stream<T> rows = ResultStreams.stream(em, query)) {
+                    rows.forEach(row -> accumulator.accept(container, row));
+                }
+                return container;
+            }));
+        }
+
+        // 구간 순서대로 합쳐서 순서가 있는 Collector도 결과 순서가 유지된다.
+        BinaryOperator<A> combiner = collector.combiner();
+        A result = null;
+        for (CompletableFuture<A> future : futures) {
+            A container = future.join();
+            result = result == null ? container : combiner.apply(result, container);
+        }
+        return finish(collector, result);
+    }
+
+    /**
+     * 구간 작업을 나누기 전에 로우 타입이 SELECT 절과 맞는지 확인한다.
+     * 조회 대상이 여러 개면 로우는 Object[]다.
+     */
+    private static void checkRowType(EntityManager em, String jpql, Class<?> rowType) {
+        int columns = em.createQuery(jpql).unwrap(org.hibernate.Query.class).getReturnTypes().length;
+        if (columns > 1 && rowType != Object[].class) {
+            throw new IllegalArgumentException("JPQL selects " + columns + " values, rowType must be Object[].class: " + jpql);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <A, R> R finish(Collector<?, A, R> collector, A container) {
+        if (collector.characteristics().contains(Collector.Characteristics.IDENTITY_FINISH)) {
+            return (R) container;
+        }
+        return collector.finisher().apply(container);
+    }
+}
@@ -0,0 +1,100 @@
+package concurrent;
+
+import persistence.JpaBootstrap;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * 작업 단위 실행기
+ *
+ * 요청마다 가상 스레드 하나를 쓰고, 그 안에서 엔티티 매니저와 트랜잭션을 따로 연다.
+ * (엔티티 매니저는 스레드 간에 공유하면 안 된다.)
+ *
+ * 가상 스레드는 얼마든지 만들 수 있지만 커넥션은 풀 크기만큼만 있다.
+ * 세마포어로 동시에 데이터베이스 작업을 하는 수를 풀 크기로 제한해서
+ * 나머지 요청은 커넥션 풀이 아니라 세마포어에서 기다리게 한다.
+ * 하이버네이트와 JDBC 드라이버의 synchronized 구간에서는 가상 스레드가 캐리어 스레드에 고정(pinning)되는데,
+ * 이 제한 덕분에 고정되는 캐리어 스레드 수도 풀 크기를 넘지 않는다.
+ */
+public class UnitOfWorkExecutor implements AutoCloseable {
+
+    private static final ThreadLocal<UnitOfWorkExecutor> CURRENT = new ThreadLocal<UnitOfWorkExecutor>();
+
+    private final JpaBootstrap bootstrap;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+
+    /**
+     * 가상 스레드, 동시 작업 수는 커넥션 풀 크기
+     */
+    public UnitOfWorkExecutor(JpaBootstrap bootstrap) {
+        this(bootstrap, Executors.newVirtualThreadPerTaskExecutor(),
+                bootstrap.getDataSource().getMaximumPoolSize());
+    }
+
+    /**
+     * @param bootstrap 영속성 유닛
+     * @param executor 작업을 실행할 스레드 (플랫폼 스레드 풀과 비교할 때 사용)
+     * @param maxConcurrency 동시에 데이터베이스 작업을 할 수 있는 수
+     */
+    public UnitOfWorkExecutor(JpaBootstrap bootstrap, ExecutorService executor, int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        this.bootstrap = bootstrap;
+        this.executor = executor;
+        this.permits = new Semaphore(maxConcurrency, true);
+    }
+
+    /**
+     * 작업을 새 엔티티 매니저와 트랜잭션으로 실행한다.
+     * @param work 실행할 작업
+     * @return 작업 결과, 작업이 실패하면 예외로 완료된다.
+     */
+    public <R> CompletableFuture<R> submit(Function<EntityManager, R> work) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while waiting for a database permit");
+            }
+            CURRENT.set(this);
+            try {
+                return bootstrap.inTransaction(work);
+            } finally {
+                CURRENT.remove();
+                permits.release();
+            }
+        }, executor);
+    }
+
+    /**
+     * 현재 스레드가 이 실행기의 작업을 실행하는 중인지
+     * 작업 안에서 같은 실행기에 작업을 넣고 기다리면, 바깥 작업이 허가를 쥔 채 기다리므로 허가가 모자라 멈출 수 있다.
+     */
+    boolean isRunningUnitOfWork() {
+        return CURRENT.get() == this;
+    }
+
+    /**
+     * 데이터베이스 작업을 기다리는 요청 수 (추정치)
+     */
+    public int getQueueLength() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * 새 작업을 받지 않고 실행 중인 작업이 끝날 때까지 기다린다.
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
@@ -0,0 +1,8 @@
+package dto;
+
+/**
+ * 회원 이름과 나이 프로젝션
+ * SELECT m.username, m.age FROM Member m
+ */
+public record MemberSummary(String username, int age) {
+}
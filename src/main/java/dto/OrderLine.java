@@ -0,0 +1,11 @@
+package dto;
+
+import entity.Member;
+import entity.Product;
+
+/**
+ * 주문 회원, 상품, 주문 수량 프로젝션
+ * SELECT o.member, o.product, o.orderAmount FROM Order o
+ */
+public record OrderLine(Member member, Product product, int orderAmount) {
+}
@@ -1,11 +1,58 @@
 package entity;
 
-import javax.persistence.Embeddable;
+import java.util.Objects;
 
-@Embeddable
-public class Address {
+/**
+ * 주소 (불변 값 타입)
+ *
+ * 주문 테이블의 CITY, STREET, ZIPCODE 컬럼과 persistence.AddressType으로 매핑한다.
+ * 값이 같은 주소는 같은 인스턴스를 공유할 수 있으므로 바꾸려면 새 Address를 만들어 setAddress()한다.
+ */
+public final class Address {
 
-    private String city;
-    private String street;
-    private String zipcode;
+    private final String city;
+    private final String street;
+    private final String zipcode;
+
+    public Address(String city, String street, String zipcode) {
+        this.city = city;
+        this.street = street;
+        this.zipcode = zipcode;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public String getStreet() {
+        return street;
+    }
+
+    public String getZipcode() {
+        return zipcode;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Address)) {
+            return false;
+        }
+        Address other = (Address) o;
+        return Objects.equals(city, other.city)
+                && Objects.equals(street, other.street)
+                && Objects.equals(zipcode, other.zipcode);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(city, street, zipcode);
+    }
+
+    @Override
+    public String toString() {
+        return city + " " + street + " (" + zipcode + ")";
+    }
 }
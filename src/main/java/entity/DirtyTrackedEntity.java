@@ -0,0 +1,53 @@
+package entity;
+
+import javax.persistence.MappedSuperclass;
+import javax.persistence.Transient;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 세터로 바꾼 필드 이름을 엔티티가 직접 기록한다.
+ *
+ * 플러시할 때 persistence.DirtyTrackingStrategy가 기록된 필드만 스냅샷과 비교하고,
+ * 기록이 없는 엔티티는 비교하지 않는다. (영속성 컨텍스트의 엔티티 수가 아니라 바꾼 필드 수만큼 비교)
+ * 하이버네이트는 필드에 직접 값을 넣으므로(필드 접근) 로딩할 때는 기록되지 않는다.
+ * 플러시로 UPDATE가 끝나면 하이버네이트가, INSERT한 뒤와 로딩한 뒤에는 persistence.DirtyTrackingResetListener가 기록을 지운다.
+ *
+ * 세터를 거치지 않고 필드 값을 바꾸면 플러시에서 빠진다. (merge()는 DirtyTrackingMergeListener가 처리)
+ */
+@MappedSuperclass
+public abstract class DirtyTrackedEntity {
+
+    // 대부분의 로딩된 엔티티는 바뀌지 않으므로 처음 바뀔 때 만든다.
+    @Transient
+    private transient Set<String> dirtyFields;
+    @Transient
+    private transient boolean allDirty;
+
+    protected void markDirty(String field) {
+        if (dirtyFields == null) {
+            dirtyFields = new HashSet<String>(4);
+        }
+        dirtyFields.add(field);
+    }
+
+    /**
+     * 모든 필드를 비교 대상으로 한다. 세터를 거치지 않고 값을 바꾼 경우에 쓴다.
+     */
+    public void markAllDirty() {
+        allDirty = true;
+    }
+
+    public boolean isDirty() {
+        return allDirty || (dirtyFields != null && !dirtyFields.isEmpty());
+    }
+
+    public boolean isDirty(String field) {
+        return allDirty || (dirtyFields != null && dirtyFields.contains(field));
+    }
+
+    public void clearDirty() {
+        dirtyFields = null;
+        allDirty = false;
+    }
+}
@@ -1,19 +1,86 @@
 package entity;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-public class Member {
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(indexes = {
+        @Index(name = "IDX_MEMBER_USERNAME_ID", columnList = "username DESC, id DESC"),
+        @Index(name = "IDX_MEMBER_TEAM_ID", columnList = "TEAM_ID")
+})
+@NamedEntityGraph(name = "member-with-team",
+        attributeNodes = @NamedAttributeNode("team"))
+@NamedQueries({
+        @NamedQuery(name = "Member.findAll",
+                query = "SELECT m FROM Member m"),
+        @NamedQuery(name = "Member.findByUsername",
+                query = "SELECT m FROM Member m where m.username = :username"),
+        @NamedQuery(name = "Member.findByUsernamePosition",
+                query = "SELECT m FROM Member m where m.username = ?1"),
+        @NamedQuery(name = "Member.findAllOrderByUsernameDesc",
+                query = "SELECT m FROM Member m ORDER BY m.username DESC"),
+        @NamedQuery(name = "Member.findByTeamName",
+                query = "SELECT m FROM Member m INNER JOIN m.team t WHERE t.name = :teamName"),
+        @NamedQuery(name = "Member.findByTeam",
+                query = "select m from Member m where m.team = :team",
+                hints = {
+                        @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+                        @QueryHint(name = "org.hibernate.cacheRegion", value = "query.Member.findByTeam")
+                })
+})
+@BatchSize(size = 100)
+public class Member extends DirtyTrackedEntity {
 
     @Id @GeneratedValue
     private Long id;
     private String username;
     private int age;
-    @ManyToOne
-    @JoinColumn(name = "ID")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "TEAM_ID")
     private Team team;
     @OneToMany(mappedBy = "member")
+    @BatchSize(size = 100)
     private List<Order> orders = new ArrayList<Order>();
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+        markDirty("username");
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+    public void setAge(int age) {
+        this.age = age;
+        markDirty("age");
+    }
+
+    public Team getTeam() {
+        return team;
+    }
+
+    public void setTeam(Team team) {
+        this.team = team;
+        markDirty("team");
+    }
+
+    public List<Order> getOrders() {
+        return orders;
+    }
 }
@@ -0,0 +1,28 @@
+package entity;
+
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * 회원별 주문 수 (rollup.RollupEventListener가 관리한다.)
+ */
+@Entity
+@Immutable
+@Table(name = "MEMBER_STATS")
+public class MemberStats {
+
+    @Id
+    private Long memberId;
+    private long orderCount;
+
+    public Long getMemberId() {
+        return memberId;
+    }
+
+    public long getOrderCount() {
+        return orderCount;
+    }
+}
@@ -1,22 +1,88 @@
 package entity;
 
+import org.hibernate.annotations.Columns;
+import org.hibernate.annotations.Type;
+
 import javax.persistence.*;
 
 @Entity
-public class Order {
+@Table(name = "ORDERS", indexes = {
+        @Index(name = "IDX_ORDERS_MEMBER_ID", columnList = "MEMBER_ID"),
+        @Index(name = "IDX_ORDERS_PRODUCT_ID", columnList = "PRODUCT_ID")
+})
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = "order-with-member",
+                attributeNodes = @NamedAttributeNode("member")),
+        @NamedEntityGraph(name = "order-full",
+                attributeNodes = {
+                        @NamedAttributeNode(value = "member", subgraph = "member-team"),
+                        @NamedAttributeNode("product")
+                },
+                subgraphs = @NamedSubgraph(name = "member-team",
+                        attributeNodes = @NamedAttributeNode("team")))
+})
+@SequenceGenerator(
+        name = "ORDER_SEQ_GENERATOR",
+        sequenceName = "ORDER_SEQ",
+        initialValue = 1, allocationSize = 50)
+public class Order extends DirtyTrackedEntity {
 
-    @Id @GeneratedValue
+    // 시퀀스를 50씩 미리 할당받아(pooled) 주문 50건마다 한 번만 시퀀스를 조회한다.
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ORDER_SEQ_GENERATOR")
     private Long id;
     private int orderAmount;
 
-    @Embedded
+    // 불변 값 타입, 같은 주소는 인스턴스를 공유한다. (persistence.AddressType)
+    @Type(type = "persistence.AddressType")
+    @Columns(columns = {@Column(name = "CITY"), @Column(name = "STREET"), @Column(name = "ZIPCODE")})
     private Address address;
 
-    @ManyToOne
-    @JoinColumn(name="ORDER_ID")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name="MEMBER_ID")
     private Member member;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name="PRODUCT_ID")
     private Product product;
+
+    public Long getId() {
+        return id;
+    }
+
+    public int getOrderAmount() {
+        return orderAmount;
+    }
+
+    public void setOrderAmount(int orderAmount) {
+        this.orderAmount = orderAmount;
+        markDirty("orderAmount");
+    }
+
+    public Address getAddress() {
+        return address;
+    }
+
+    public void setAddress(Address address) {
+        this.address = address;
+        markDirty("address");
+    }
+
+    public Member getMember() {
+        return member;
+    }
+
+    public void setMember(Member member) {
+        this.member = member;
+        markDirty("member");
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+
+    public void setProduct(Product product) {
+        this.product = product;
+        markDirty("product");
+    }
 }
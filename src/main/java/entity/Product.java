@@ -1,21 +1,78 @@
 package entity;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import javax.persistence.Basic;
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import javax.persistence.OneToMany;
+import javax.persistence.Version;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-public class Product {
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@BatchSize(size = 100)
+public class Product extends DirtyTrackedEntity {
 
     @Id @GeneratedValue
     private Long id;
+    // 목록, 재고 처리에서는 이름을 쓰지 않으므로 처음 읽을 때 따로 로딩한다. (바이트코드 향상 필요)
+    @Basic(fetch = FetchType.LAZY)
     private String name;
     private int price;
     private int stockAmount;
 
+    // 재고 차감이 동시에 일어나면 나중에 커밋하는 쪽이 OptimisticLockException으로 실패한다. (stock.StockReservation)
+    @Version
+    private long version;
+
     @OneToMany(mappedBy = "product")
+    @BatchSize(size = 100)
     private List<Order> orders = new ArrayList<Order>();
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+        markDirty("name");
+    }
+
+    public int getPrice() {
+        return price;
+    }
+
+    public void setPrice(int price) {
+        this.price = price;
+        markDirty("price");
+    }
+
+    public int getStockAmount() {
+        return stockAmount;
+    }
+
+    public void setStockAmount(int stockAmount) {
+        this.stockAmount = stockAmount;
+        markDirty("stockAmount");
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Order> getOrders() {
+        return orders;
+    }
 }
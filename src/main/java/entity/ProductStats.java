@@ -0,0 +1,28 @@
+package entity;
+
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * 상품별 주문 수량 합 (rollup.RollupEventListener가 관리한다.)
+ */
+@Entity
+@Immutable
+@Table(name = "PRODUCT_STATS")
+public class ProductStats {
+
+    @Id
+    private Long productId;
+    private long orderedAmount;
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public long getOrderedAmount() {
+        return orderedAmount;
+    }
+}
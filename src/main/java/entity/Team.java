@@ -1,12 +1,22 @@
 package entity;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.awt.*;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-public class Team{
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@BatchSize(size = 100)
+@Table(indexes = @Index(name = "IDX_TEAM_NAME", columnList = "name"))
+@NamedEntityGraph(name = "team-with-members",
+        attributeNodes = @NamedAttributeNode("members"))
+public class Team extends DirtyTrackedEntity {
 
     @Id
     @GeneratedValue
@@ -15,6 +25,24 @@ public class Team{
     private String name;
 
     @OneToMany(mappedBy = "team")
-    private List<Member> mebers = new ArrayList<Member>();
+    @BatchSize(size = 100)
+    private List<Member> members = new ArrayList<Member>();
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+        markDirty("name");
+    }
+
+    public List<Member> getMembers() {
+        return members;
+    }
 
 }
@@ -0,0 +1,37 @@
+package entity;
+
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * 팀별 회원 수, 나이 합 (rollup.RollupEventListener가 관리한다.)
+ */
+@Entity
+@Immutable
+@Table(name = "TEAM_STATS")
+public class TeamStats {
+
+    @Id
+    private Long teamId;
+    private long memberCount;
+    private long ageSum;
+
+    public Long getTeamId() {
+        return teamId;
+    }
+
+    public long getMemberCount() {
+        return memberCount;
+    }
+
+    public long getAgeSum() {
+        return ageSum;
+    }
+
+    public double getAverageAge() {
+        return memberCount == 0 ? 0.0 : (double) ageSum / memberCount;
+    }
+}
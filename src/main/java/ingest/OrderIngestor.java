@@ -0,0 +1,140 @@
+package ingest;
+
+import entity.Member;
+import entity.Order;
+import entity.Product;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * 주문 대량 적재
+ *
+ * 주문을 하나씩 persist()하고 커밋하면 주문마다 시퀀스 조회, INSERT, 커밋이 한 번씩 일어난다.
+ * 여기서는
+ * - 주문 식별자를 시퀀스에서 50개씩 미리 할당받고 (Order의 pooled 시퀀스)
+ * - batchSize건마다 flush()해서 INSERT를 JDBC 배치로 보낸 뒤 clear()로 영속성 컨텍스트를 비우고
+ * - commitInterval건마다 커밋해서 트랜잭션이 너무 커지지 않게 한다.
+ *
+ * batchSize는 persistence.xml의 hibernate.jdbc.batch_size와 같아야 한다. 하이버네이트 4.3은 세션마다
+ * JDBC 배치 크기를 바꿀 수 없어서, 다른 값으로 flush하면 배치가 중간에 잘리거나 여러 번 나뉜다.
+ * 그래서 다른 값이면 생성자에서 거부한다.
+ */
+public class OrderIngestor {
+
+    private static final Logger log = Logger.getLogger(OrderIngestor.class.getName());
+
+    private final EntityManagerFactory emf;
+    private final int batchSize;
+    private final int commitInterval;
+
+    private final AtomicLong ingestedCount = new AtomicLong();
+    private final AtomicLong elapsedNanos = new AtomicLong();
+
+    /**
+     * 설정한 JDBC 배치 크기로 flush하고, 그 200배(기본 설정이면 10,000건)마다 커밋한다.
+     */
+    public OrderIngestor(EntityManagerFactory emf) {
+        this(emf, jdbcBatchSize(emf), jdbcBatchSize(emf) * 200);
+    }
+
+    /**
+     * @param batchSize flush 주기, hibernate.jdbc.batch_size와 같아야 한다.
+     * @param commitInterval 커밋 주기, batchSize의 배수
+     */
+    public OrderIngestor(EntityManagerFactory emf, int batchSize, int commitInterval) {
+        int jdbcBatchSize = jdbcBatchSize(emf);
+        if (batchSize != jdbcBatchSize) {
+            throw new IllegalArgumentException("batchSize must match hibernate.jdbc.batch_size: "
+                    + batchSize + ", " + jdbcBatchSize);
+        }
+        if (commitInterval <= 0 || commitInterval % batchSize != 0) {
+            throw new IllegalArgumentException(
+                    "commitInterval must be a positive multiple of batchSize: " + batchSize + ", " + commitInterval);
+        }
+        this.emf = emf;
+        this.batchSize = batchSize;
+        this.commitInterval = commitInterval;
+    }
+
+    /**
+     * 주문을 적재한다. 실패하면 마지막 커밋 이후의 주문만 롤백된다.
+     * @param requests 적재할 주문
+     * @return 적재한 주문 수
+     */
+    public long ingest(Iterable<OrderRequest> requests) {
+        EntityManager em = emf.createEntityManager();
+        EntityTransaction tx = em.getTransaction();
+        long start = System.nanoTime();
+        long count = 0;
+        long committed = 0;
+        try {
+            tx.begin();
+            for (OrderRequest request : requests) {
+                Order order = new Order();
+                order.setMember(em.getReference(Member.class, request.memberId()));
+                order.setProduct(em.getReference(Product.class, request.productId()));
+                order.setOrderAmount(request.orderAmount());
+                order.setAddress(request.address());
+                em.persist(order);
+                count++;
+
+                if (count % batchSize == 0) {
+                    em.flush();
+                    em.clear();
+                }
+                if (count % commitInterval == 0) {
+                    tx.commit();
+                    record(count - committed, start);
+                    committed = count;
+                    start = System.nanoTime();
+                    tx.begin();
+                }
+            }
+            tx.commit();
+            record(count - committed, start);
+            return count;
+        } catch (RuntimeException e) {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    private static int jdbcBatchSize(EntityManagerFactory emf) {
+        int jdbcBatchSize = emf.unwrap(SessionFactoryImplementor.class).getSettings().getJdbcBatchSize();
+        if (jdbcBatchSize <= 1) {
+            throw new IllegalStateException("JDBC batching is disabled (hibernate.jdbc.batch_size=" + jdbcBatchSize + ")");
+        }
+        return jdbcBatchSize;
+    }
+
+    private void record(long rows, long start) {
+        long total = ingestedCount.addAndGet(rows);
+        elapsedNanos.addAndGet(System.nanoTime() - start);
+        log.info(String.format("ingested %d orders (%.0f rows/sec)", total, getRowsPerSecond()));
+    }
+
+    /**
+     * 지금까지 커밋한 주문 수
+     */
+    public long getIngestedCount() {
+        return ingestedCount.get();
+    }
+
+    /**
+     * 지금까지의 평균 적재 속도
+     */
+    public double getRowsPerSecond() {
+        long nanos = elapsedNanos.get();
+        return nanos == 0 ? 0.0 : ingestedCount.get() * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+}
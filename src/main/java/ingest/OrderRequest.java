@@ -0,0 +1,10 @@
+package ingest;
+
+import entity.Address;
+
+/**
+ * 주문 적재 요청
+ * 회원과 상품은 식별자로만 받는다. 적재할 때 조회하지 않고 프록시(getReference)로 연결한다.
+ */
+public record OrderRequest(long memberId, long productId, int orderAmount, Address address) {
+}
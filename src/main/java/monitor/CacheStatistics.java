@@ -0,0 +1,72 @@
+package monitor;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * 2차 캐시, 쿼리 캐시 적중률
+ *
+ * 통계는 이 객체를 만들 때 켠다. 그 뒤의 조회부터 값이 쌓인다.
+ * persistence.xml에서 hibernate.generate_statistics를 켜 두면 엔티티 매니저를 닫을 때마다
+ * "Session Metrics" INFO 로그가 남으므로 켜 두지 않는다. (세션 로그는 시작할 때의 설정만 본다.)
+ */
+public class CacheStatistics {
+
+    private final Statistics statistics;
+
+    public CacheStatistics(EntityManagerFactory emf) {
+        this.statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    /**
+     * 영역별 적중률
+     * @param regionName 캐시 영역 이름 (엔티티 캐시는 엔티티 클래스 이름)
+     */
+    public double hitRatio(String regionName) {
+        SecondLevelCacheStatistics region = statistics.getSecondLevelCacheStatistics(regionName);
+        if (region == null) {
+            return 0.0;
+        }
+        return ratio(region.getHitCount(), region.getMissCount());
+    }
+
+    public double queryCacheHitRatio() {
+        return ratio(statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount());
+    }
+
+    public void clear() {
+        statistics.clear();
+    }
+
+    /**
+     * 모든 캐시 영역의 적중, 실패, 저장 횟수
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            SecondLevelCacheStatistics region = statistics.getSecondLevelCacheStatistics(regionName);
+            sb.append(regionName)
+                    .append(" hit=").append(region.getHitCount())
+                    .append(" miss=").append(region.getMissCount())
+                    .append(" put=").append(region.getPutCount())
+                    .append(" size=").append(region.getElementCountInMemory())
+                    .append(String.format(" ratio=%.2f", ratio(region.getHitCount(), region.getMissCount())))
+                    .append('\n');
+        }
+        sb.append("query cache")
+                .append(" hit=").append(statistics.getQueryCacheHitCount())
+                .append(" miss=").append(statistics.getQueryCacheMissCount())
+                .append(" put=").append(statistics.getQueryCachePutCount())
+                .append(String.format(" ratio=%.2f", queryCacheHitRatio()));
+        return sb.toString();
+    }
+
+    private static double ratio(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
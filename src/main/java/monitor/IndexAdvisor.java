@@ -0,0 +1,247 @@
+package monitor;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 인덱스 추천
+ *
+ * 1. start() 이후 실행한 SELECT 문(JPQL이 변환된 SQL)과 실행 횟수를 기록한다.
+ * 2. advise()는 기록한 SQL마다 H2의 EXPLAIN으로 실행 계획을 보고, 테이블 전체를 읽는(tableScan) 테이블을 찾는다.
+ * 3. 그 테이블의 WHERE 조건 컬럼(= 조건 먼저, 그다음 범위 조건)과 ORDER BY 컬럼으로 인덱스를 제안한다.
+ *
+ * SQL은 하이버네이트가 만든 형태(from 테이블 별칭, 별칭.컬럼)를 가정하고 정규식으로 분석한다. 서브쿼리는 분석하지 않는다.
+ * SQL 종류는 maxStatements개(기본 DEFAULT_MAX_STATEMENTS)까지만 기록하고, 그 뒤에 처음 보는 SQL은 버린다.
+ * (값을 이어 붙인 SQL이 끝없이 쌓이지 않게 한다. 이미 기록한 SQL의 실행 횟수는 계속 센다.)
+ *
+ * try (IndexAdvisor advisor = new IndexAdvisor().start()) {
+ *     ... 쿼리 실행 ...
+ *     for (IndexAdvisor.Proposal proposal : advisor.advise(connection)) {
+ *         System.out.println(proposal.toDdl());
+ *     }
+ * }
+ */
+public class IndexAdvisor implements AutoCloseable {
+
+    private static final Pattern TABLE = Pattern.compile("\\b(?:from|join)\\s+(\\w+)\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern PREDICATE = Pattern.compile(
+            "(\\w+)\\.(\\w+)\\s*(=|<>|<=|>=|<|>|\\blike\\b|\\bin\\b|\\bbetween\\b)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ORDER_COLUMN = Pattern.compile("(\\w+)\\.(\\w+)");
+    private static final Pattern TABLE_SCAN = Pattern.compile("/\\* \\w+\\.(\\w+)\\.tableScan \\*/");
+
+    private static final Logger log = Logger.getLogger(IndexAdvisor.class.getName());
+
+    public static final int DEFAULT_MAX_STATEMENTS = 1000;
+
+    private final int maxStatements;
+    private final Map<String, LongAdder> executions = new ConcurrentHashMap<String, LongAdder>();
+    private final LongAdder skipped = new LongAdder();
+    private final Consumer<String> listener = this::record;
+
+    public IndexAdvisor() {
+        this(DEFAULT_MAX_STATEMENTS);
+    }
+
+    /**
+     * @param maxStatements 기록할 SQL 종류 수
+     */
+    public IndexAdvisor(int maxStatements) {
+        if (maxStatements < 1) {
+            throw new IllegalArgumentException("maxStatements must be positive: " + maxStatements);
+        }
+        this.maxStatements = maxStatements;
+    }
+
+    public IndexAdvisor start() {
+        SqlListeners.add(listener);
+        return this;
+    }
+
+    @Override
+    public void close() {
+        SqlListeners.remove(listener);
+    }
+
+    void record(String sql) {
+        if (!SqlListeners.isSelect(sql)) {
+            return;
+        }
+        String normalized = SqlListeners.stripComment(sql).replaceAll("\\s+", " ");
+        LongAdder count = executions.get(normalized);
+        if (count == null) {
+            synchronized (executions) {
+                count = executions.get(normalized);
+                if (count == null) {
+                    if (executions.size() >= maxStatements) {
+                        skipped.increment();
+                        if (skipped.sum() == 1) {
+                            log.warning("More than " + maxStatements + " distinct SELECT statements, ignoring new ones");
+                        }
+                        return;
+                    }
+                    count = new LongAdder();
+                    executions.put(normalized, count);
+                }
+            }
+        }
+        count.increment();
+    }
+
+    /**
+     * 한도를 넘어서 기록하지 않은 SELECT 실행 횟수
+     */
+    public long skipped() {
+        return skipped.sum();
+    }
+
+    /**
+     * 기록한 SQL의 실행 계획을 보고 인덱스를 제안한다. 실행 횟수가 많은 순서로 반환한다.
+     * @param connection 실행 계획을 조회할 커넥션
+     */
+    public List<Proposal> advise(Connection connection) throws SQLException {
+        Map<String, Proposal> proposals = new LinkedHashMap<String, Proposal>();
+        for (Map.Entry<String, LongAdder> entry : executions.entrySet()) {
+            String sql = entry.getKey();
+            Set<String> scanned = scannedTables(connection, sql);
+            if (scanned.isEmpty()) {
+                continue;
+            }
+            for (Proposal proposal : analyze(sql, scanned, entry.getValue().sum())) {
+                Proposal existing = proposals.get(proposal.name());
+                proposals.put(proposal.name(), existing == null ? proposal : existing.merge(proposal));
+            }
+        }
+        List<Proposal> result = new ArrayList<Proposal>(proposals.values());
+        result.sort((a, b) -> Long.compare(b.executions(), a.executions()));
+        return result;
+    }
+
+    public static String report(List<Proposal> proposals) {
+        StringBuilder sb = new StringBuilder();
+        for (Proposal proposal : proposals) {
+            sb.append(proposal.toDdl()).append(";  -- ").append(proposal.executions()).append(" executions\n")
+                    .append("    ").append(proposal.toAnnotation()).append('\n')
+                    .append("    ").append(proposal.sql()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static Set<String> scannedTables(Connection connection, String sql) throws SQLException {
+        Set<String> tables = new LinkedHashSet<String>();
+        try (PreparedStatement ps = connection.prepareStatement("EXPLAIN " + sql)) {
+            // 실행 계획은 파라미터 값과 관계없으므로 모두 null로 바인딩한다.
+            int count = ps.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= count; i++) {
+                ps.setNull(i, Types.NULL);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Matcher matcher = TABLE_SCAN.matcher(rs.getString(1));
+                    while (matcher.find()) {
+                        tables.add(matcher.group(1).toUpperCase(Locale.ROOT));
+                    }
+                }
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * 전체를 읽은 테이블마다 = 조건 컬럼, 범위 조건 컬럼, ORDER BY 컬럼 순서로 인덱스 컬럼을 고른다.
+     */
+    static List<Proposal> analyze(String sql, Set<String> scannedTables, long executions) {
+        String lower = sql.toLowerCase(Locale.ROOT);
+        Map<String, String> tablesByAlias = new HashMap<String, String>();
+        Matcher tableMatcher = TABLE.matcher(sql);
+        while (tableMatcher.find()) {
+            tablesByAlias.put(tableMatcher.group(2).toLowerCase(Locale.ROOT),
+                    tableMatcher.group(1).toUpperCase(Locale.ROOT));
+        }
+
+        int where = lower.indexOf(" where ");
+        int orderBy = lower.indexOf(" order by ");
+        String wherePart = where < 0 ? "" : sql.substring(where, orderBy > where ? orderBy : sql.length());
+        String orderPart = orderBy < 0 ? "" : sql.substring(orderBy);
+
+        Map<String, Set<String>> equalities = new LinkedHashMap<String, Set<String>>();
+        Map<String, Set<String>> ranges = new LinkedHashMap<String, Set<String>>();
+        Matcher predicate = PREDICATE.matcher(wherePart);
+        while (predicate.find()) {
+            String table = tablesByAlias.get(predicate.group(1).toLowerCase(Locale.ROOT));
+            if (table == null || !scannedTables.contains(table)) {
+                continue;
+            }
+            String operator = predicate.group(3).toLowerCase(Locale.ROOT);
+            Map<String, Set<String>> target = operator.equals("=") || operator.equals("in") ? equalities : ranges;
+            target.computeIfAbsent(table, key -> new LinkedHashSet<String>())
+                    .add(predicate.group(2).toUpperCase(Locale.ROOT));
+        }
+        Matcher order = ORDER_COLUMN.matcher(orderPart);
+        while (order.find()) {
+            String table = tablesByAlias.get(order.group(1).toLowerCase(Locale.ROOT));
+            if (table != null && scannedTables.contains(table)) {
+                ranges.computeIfAbsent(table, key -> new LinkedHashSet<String>())
+                        .add(order.group(2).toUpperCase(Locale.ROOT));
+            }
+        }
+
+        List<Proposal> proposals = new ArrayList<Proposal>();
+        for (String table : scannedTables) {
+            Set<String> columns = new LinkedHashSet<String>();
+            if (equalities.containsKey(table)) {
+                columns.addAll(equalities.get(table));
+            }
+            if (ranges.containsKey(table)) {
+                columns.addAll(ranges.get(table));
+            }
+            if (!columns.isEmpty()) {
+                proposals.add(new Proposal(table, new ArrayList<String>(columns), executions, sql));
+            }
+        }
+        return proposals;
+    }
+
+    /**
+     * 인덱스 제안
+     * @param table 테이블
+     * @param columns 인덱스 컬럼 (순서 있음)
+     * @param executions 이 인덱스가 필요한 SQL의 실행 횟수 합
+     * @param sql 가장 먼저 발견한 SQL
+     */
+    public record Proposal(String table, List<String> columns, long executions, String sql) {
+
+        public String name() {
+            return "IDX_" + table + "_" + String.join("_", columns);
+        }
+
+        public String toDdl() {
+            return "CREATE INDEX IF NOT EXISTS " + name() + " ON " + table + " (" + String.join(", ", columns) + ")";
+        }
+
+        public String toAnnotation() {
+            return "@Index(name = \"" + name() + "\", columnList = \""
+                    + String.join(", ", columns).toLowerCase(Locale.ROOT) + "\")";
+        }
+
+        Proposal merge(Proposal other) {
+            return new Proposal(table, columns, executions + other.executions, sql);
+        }
+    }
+}
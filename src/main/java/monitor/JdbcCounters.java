@@ -0,0 +1,33 @@
+package monitor;
+
+/**
+ * 스레드별 누적 카운터
+ * 인터셉터가 값을 올리고, 쿼리 계측은 실행 전후 값의 차이로 쿼리 하나가 일으킨 SQL 수와 엔티티 로딩 수를 구한다.
+ * 쿼리는 호출한 스레드에서 실행되므로 다른 스레드와 섞이지 않는다.
+ */
+final class JdbcCounters {
+
+    private static final ThreadLocal<long[]> COUNTERS = ThreadLocal.withInitial(() -> new long[2]);
+
+    private static final int STATEMENTS = 0;
+    private static final int ENTITY_LOADS = 1;
+
+    private JdbcCounters() {
+    }
+
+    static void statementPrepared() {
+        COUNTERS.get()[STATEMENTS]++;
+    }
+
+    static void entityLoaded() {
+        COUNTERS.get()[ENTITY_LOADS]++;
+    }
+
+    static long statements() {
+        return COUNTERS.get()[STATEMENTS];
+    }
+
+    static long entityLoads() {
+        return COUNTERS.get()[ENTITY_LOADS];
+    }
+}
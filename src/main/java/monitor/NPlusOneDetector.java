@@ -0,0 +1,87 @@
+package monitor;
+
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.Transaction;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * N+1 문제 감지기
+ *
+ * 트랜잭션 하나가 실행한 SQL을 문장별로 센다. 트랜잭션 밖에서 실행한 SQL은 보고할 시점이 없으므로 세지 않는다.
+ * 지연 로딩은 소유자마다 같은 SELECT 문을 파라미터만 바꿔서 실행하므로,
+ * 같은 SELECT가 임계치 이상 반복되면 결과를 순회하며 지연 로딩을 일으킨 것으로 보고 경고를 남긴다.
+ *
+ * 세션마다 새 인스턴스가 필요하므로 persistence.xml에 세션 범위로 등록한다.
+ * <property name="hibernate.ejb.interceptor.session_scoped" value="monitor.NPlusOneDetector"/>
+ *
+ * 임계치는 시스템 프로퍼티 monitor.nplusone.threshold로 바꿀 수 있다. (기본 10)
+ *
+ * 실행한 SQL 수와 로딩한 엔티티 수는 쿼리별 계측(QueryInstrumentation)을 위해 JdbcCounters에도 세고,
+ * 실행한 SQL은 인덱스 추천(IndexAdvisor) 같은 SqlListeners 구독자에게도 넘긴다.
+ */
+public class NPlusOneDetector extends EmptyInterceptor {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger log = Logger.getLogger(NPlusOneDetector.class.getName());
+
+    private static final int THRESHOLD = Integer.getInteger("monitor.nplusone.threshold", 10);
+
+    private final HashMap<String, Integer> selectCounts = new HashMap<String, Integer>();
+    private int statementCount;
+    private boolean inTransaction;
+
+    @Override
+    public void afterTransactionBegin(Transaction tx) {
+        selectCounts.clear();
+        statementCount = 0;
+        inTransaction = true;
+    }
+
+    @Override
+    public String onPrepareStatement(String sql) {
+        JdbcCounters.statementPrepared();
+        SqlListeners.prepared(sql);
+        if (!inTransaction) {
+            return sql;
+        }
+        statementCount++;
+        if (SqlListeners.isSelect(sql)) {
+            Integer count = selectCounts.get(sql);
+            selectCounts.put(sql, count == null ? 1 : count + 1);
+        }
+        return sql;
+    }
+
+    @Override
+    public boolean onLoad(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+        JdbcCounters.entityLoaded();
+        return false;
+    }
+
+    @Override
+    public void afterTransactionCompletion(Transaction tx) {
+        for (Map.Entry<String, Integer> entry : selectCounts.entrySet()) {
+            if (entry.getValue() >= THRESHOLD) {
+                log.warning("Possible N+1: the same SELECT ran " + entry.getValue() + " times in one transaction ("
+                        + statementCount + " statements in total). Consider a fetch join or @BatchSize. SQL: "
+                        + entry.getKey());
+            }
+        }
+        selectCounts.clear();
+        statementCount = 0;
+        inTransaction = false;
+    }
+
+    /**
+     * 현재 트랜잭션에서 실행한 SQL 수
+     */
+    public int getStatementCount() {
+        return statementCount;
+    }
+}
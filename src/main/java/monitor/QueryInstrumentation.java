@@ -0,0 +1,266 @@
+package monitor;
+
+import org.HdrHistogram.Histogram;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * 쿼리별 계측
+ *
+ * wrap()으로 감싼 엔티티 매니저에서 만든 쿼리는 실행할 때마다 JPQL(이름 있는 쿼리는 이름)별로
+ * 실행 횟수, 실행한 SQL 수, 조회한 로우 수, 로딩한 엔티티 수, 지연 시간 히스토그램을 기록한다.
+ * em.find()는 "find 엔티티이름"으로 기록한다.
+ *
+ * 지표는 JMX(monitor:type=QueryMetrics,name=...)로 조회할 수 있고, start()하면 주기적으로 로그에 남긴다.
+ * SQL 수와 엔티티 수는 NPlusOneDetector 인터셉터가 등록되어 있어야 집계된다.
+ *
+ * 키는 JPQL 문자열이므로 파라미터를 바인딩하지 않고 값을 이어 붙이면 쿼리 종류가 끝없이 늘어난다.
+ * 그래서 쿼리 종류는 maxQueries개(기본 DEFAULT_MAX_QUERIES)까지만 따로 기록하고,
+ * 그 뒤에 처음 보는 쿼리는 모두 OVERFLOW 한 곳에 합쳐서 기록한다. 따로 기록하던 쿼리를 빼지 않으므로
+ * 등록한 MBean도 close()할 때까지 그대로 둔다.
+ *
+ * QueryInstrumentation instrumentation = new QueryInstrumentation();
+ * instrumentation.start(1, TimeUnit.MINUTES);
+ * EntityManager em = instrumentation.wrap(emf.createEntityManager());
+ */
+public class QueryInstrumentation implements AutoCloseable {
+
+    private static final Logger log = Logger.getLogger(QueryInstrumentation.class.getName());
+
+    public static final int DEFAULT_MAX_QUERIES = 500;
+
+    /**
+     * 한도를 넘은 뒤 처음 보는 쿼리를 합쳐서 기록하는 키
+     */
+    public static final String OVERFLOW = "(other queries)";
+
+    private final int maxQueries;
+    private final Map<String, QueryMetrics> metrics = new ConcurrentHashMap<String, QueryMetrics>();
+    private final QueryMetrics overflow = new QueryMetrics(OVERFLOW);
+    private volatile boolean overflowed;
+    private final Map<String, ObjectName> registeredNames = new ConcurrentHashMap<String, ObjectName>();
+    private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    private ScheduledExecutorService scheduler;
+
+    public QueryInstrumentation() {
+        this(DEFAULT_MAX_QUERIES);
+    }
+
+    /**
+     * @param maxQueries 따로 기록할 쿼리 종류 수
+     */
+    public QueryInstrumentation(int maxQueries) {
+        if (maxQueries < 1) {
+            throw new IllegalArgumentException("maxQueries must be positive: " + maxQueries);
+        }
+        this.maxQueries = maxQueries;
+    }
+
+    public EntityManager wrap(EntityManager em) {
+        return (EntityManager) Proxy.newProxyInstance(
+                EntityManager.class.getClassLoader(),
+                new Class<?>[]{EntityManager.class},
+                new EntityManagerHandler(em));
+    }
+
+    /**
+     * 쿼리별 지표 (한도를 넘었으면 OVERFLOW 포함)
+     */
+    public Collection<QueryMetrics> getMetrics() {
+        List<QueryMetrics> all = new ArrayList<QueryMetrics>(metrics.values());
+        if (overflowed) {
+            all.add(overflow);
+        }
+        return all;
+    }
+
+    /**
+     * 주기적으로 구간 지표를 로그에 남긴다.
+     */
+    public synchronized void start(long period, TimeUnit unit) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "query-instrumentation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::dump, period, period, unit);
+    }
+
+    public void dump() {
+        for (QueryMetrics queryMetrics : getMetrics()) {
+            Histogram interval = queryMetrics.roll();
+            if (interval.getTotalCount() == 0) {
+                continue;
+            }
+            log.info(String.format("%s count=%d p50=%dus p99=%dus max=%dus | total executions=%d statements=%d rows=%d entities=%d",
+                    queryMetrics.getQuery(), interval.getTotalCount(),
+                    interval.getValueAtPercentile(50.0), interval.getValueAtPercentile(99.0), interval.getMaxValue(),
+                    queryMetrics.getExecutionCount(), queryMetrics.getStatementCount(),
+                    queryMetrics.getRowCount(), queryMetrics.getEntityLoadCount()));
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+        for (ObjectName name : registeredNames.values()) {
+            try {
+                mBeanServer.unregisterMBean(name);
+            } catch (JMException e) {
+                log.warning("Failed to unregister " + name + ": " + e);
+            }
+        }
+        registeredNames.clear();
+    }
+
+    private QueryMetrics metricsFor(String key) {
+        QueryMetrics queryMetrics = metrics.get(key);
+        if (queryMetrics != null) {
+            return queryMetrics;
+        }
+        synchronized (metrics) {
+            queryMetrics = metrics.get(key);
+            if (queryMetrics != null) {
+                return queryMetrics;
+            }
+            if (metrics.size() >= maxQueries) {
+                if (!overflowed) {
+                    log.warning("More than " + maxQueries + " distinct queries, recording the rest as " + OVERFLOW
+                            + ". Bind parameters instead of concatenating values into JPQL.");
+                    register(OVERFLOW, overflow);
+                    overflowed = true;
+                }
+                return overflow;
+            }
+            queryMetrics = new QueryMetrics(key);
+            metrics.put(key, queryMetrics);
+            register(key, queryMetrics);
+            return queryMetrics;
+        }
+    }
+
+    private void register(String key, QueryMetrics queryMetrics) {
+        try {
+            ObjectName name = new ObjectName("monitor:type=QueryMetrics,name=" + ObjectName.quote(key));
+            mBeanServer.registerMBean(queryMetrics, name);
+            registeredNames.put(key, name);
+        } catch (JMException e) {
+            log.warning("Failed to register query metrics for " + key + ": " + e);
+        }
+    }
+
+    private Object measure(String key, Object target, Method method, Object[] args) throws Throwable {
+        long statements = JdbcCounters.statements();
+        long entityLoads = JdbcCounters.entityLoads();
+        long start = System.nanoTime();
+        Object result = invoke(target, method, args);
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+
+        long rows;
+        if (result instanceof Collection) {
+            rows = ((Collection<?>) result).size();
+        } else if (result instanceof Integer && method.getName().equals("executeUpdate")) {
+            rows = (Integer) result;
+        } else {
+            rows = result == null ? 0 : 1;
+        }
+        metricsFor(key).record(latencyMicros,
+                JdbcCounters.statements() - statements,
+                rows,
+                JdbcCounters.entityLoads() - entityLoads);
+        return result;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private class EntityManagerHandler implements InvocationHandler {
+
+        private final EntityManager target;
+
+        EntityManagerHandler(EntityManager target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("find")) {
+                return measure("find " + ((Class<?>) args[0]).getSimpleName(), target, method, args);
+            }
+            Object result = QueryInstrumentation.invoke(target, method, args);
+            if (args != null && args[0] instanceof String && result instanceof Query) {
+                if (name.equals("createQuery")) {
+                    return wrapQuery((Query) result, (String) args[0]);
+                }
+                if (name.equals("createNamedQuery")) {
+                    return wrapQuery((Query) result, "named " + args[0]);
+                }
+            }
+            return result;
+        }
+    }
+
+    private Query wrapQuery(Query query, String key) {
+        Class<?> type = query instanceof TypedQuery ? TypedQuery.class : Query.class;
+        return (Query) Proxy.newProxyInstance(
+                Query.class.getClassLoader(),
+                new Class<?>[]{type},
+                new QueryHandler(query, key));
+    }
+
+    private class QueryHandler implements InvocationHandler {
+
+        private final Query target;
+        private final String key;
+
+        QueryHandler(Query target, String key) {
+            this.target = target;
+            this.key = key;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "getResultList":
+                case "getSingleResult":
+                case "executeUpdate":
+                    return measure(key, target, method, args);
+                default:
+                    Object result = QueryInstrumentation.invoke(target, method, args);
+                    // setParameter() 같은 메소드 체인이 원본 쿼리로 빠지지 않게 한다.
+                    return result == target ? proxy : result;
+            }
+        }
+    }
+}
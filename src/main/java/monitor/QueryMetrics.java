@@ -0,0 +1,109 @@
+package monitor;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * JPQL 하나의 누적 지표
+ *
+ * 기록은 락 없이 한다. (LongAdder, HdrHistogram Recorder)
+ * 히스토그램은 조회 시점에 Recorder에 쌓인 값을 꺼내서 누적 히스토그램(JMX)과
+ * 로그 구간 히스토그램(QueryInstrumentation.dump())에 각각 합친다.
+ * 그래서 JMX로 조회해도 로그에 남길 구간 값이 사라지지 않는다.
+ */
+public class QueryMetrics implements QueryMetricsMXBean {
+
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final String query;
+
+    private final LongAdder executionCount = new LongAdder();
+    private final LongAdder statementCount = new LongAdder();
+    private final LongAdder rowCount = new LongAdder();
+    private final LongAdder entityLoadCount = new LongAdder();
+
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+    private final Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+    private final Histogram sinceRoll = new Histogram(SIGNIFICANT_DIGITS);
+    private Histogram drained;
+
+    QueryMetrics(String query) {
+        this.query = query;
+    }
+
+    void record(long latencyMicros, long statements, long rows, long entityLoads) {
+        executionCount.increment();
+        statementCount.add(statements);
+        rowCount.add(rows);
+        entityLoadCount.add(entityLoads);
+        recorder.recordValue(latencyMicros);
+    }
+
+    /**
+     * 지난번 roll() 이후의 구간 히스토그램을 복사해서 반환하고 구간을 새로 시작한다.
+     */
+    synchronized Histogram roll() {
+        drain();
+        Histogram interval = sinceRoll.copy();
+        sinceRoll.reset();
+        return interval;
+    }
+
+    private synchronized Histogram snapshot() {
+        drain();
+        return total.copy();
+    }
+
+    private void drain() {
+        drained = recorder.getIntervalHistogram(drained);
+        total.add(drained);
+        sinceRoll.add(drained);
+    }
+
+    @Override
+    public String getQuery() {
+        return query;
+    }
+
+    @Override
+    public long getExecutionCount() {
+        return executionCount.sum();
+    }
+
+    @Override
+    public long getStatementCount() {
+        return statementCount.sum();
+    }
+
+    @Override
+    public long getRowCount() {
+        return rowCount.sum();
+    }
+
+    @Override
+    public long getEntityLoadCount() {
+        return entityLoadCount.sum();
+    }
+
+    @Override
+    public double getMeanLatencyMicros() {
+        return snapshot().getMean();
+    }
+
+    @Override
+    public long getP50LatencyMicros() {
+        return snapshot().getValueAtPercentile(50.0);
+    }
+
+    @Override
+    public long getP99LatencyMicros() {
+        return snapshot().getValueAtPercentile(99.0);
+    }
+
+    @Override
+    public long getMaxLatencyMicros() {
+        return snapshot().getMaxValue();
+    }
+}
@@ -0,0 +1,26 @@
+package monitor;
+
+/**
+ * JMX로 노출하는 쿼리별 지표
+ * 지연 시간은 마이크로초 단위다.
+ */
+public interface QueryMetricsMXBean {
+
+    String getQuery();
+
+    long getExecutionCount();
+
+    long getStatementCount();
+
+    long getRowCount();
+
+    long getEntityLoadCount();
+
+    double getMeanLatencyMicros();
+
+    long getP50LatencyMicros();
+
+    long getP99LatencyMicros();
+
+    long getMaxLatencyMicros();
+}
@@ -0,0 +1,50 @@
+package monitor;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 실행하는 SQL 구독
+ * 인터셉터(NPlusOneDetector)가 SQL을 준비할 때마다 등록된 구독자에게 넘긴다.
+ * 구독자가 없으면 비용이 거의 없다.
+ */
+final class SqlListeners {
+
+    private static final List<Consumer<String>> LISTENERS = new CopyOnWriteArrayList<Consumer<String>>();
+
+    private SqlListeners() {
+    }
+
+    static void add(Consumer<String> listener) {
+        LISTENERS.add(listener);
+    }
+
+    static void remove(Consumer<String> listener) {
+        LISTENERS.remove(listener);
+    }
+
+    static void prepared(String sql) {
+        for (Consumer<String> listener : LISTENERS) {
+            listener.accept(sql);
+        }
+    }
+
+    /**
+     * hibernate.use_sql_comments가 켜져 있으면 SQL 앞에 JPQL 주석이 붙는다.
+     */
+    static String stripComment(String sql) {
+        String trimmed = sql.trim();
+        if (trimmed.startsWith("/*")) {
+            int end = trimmed.indexOf("*/");
+            if (end >= 0) {
+                return trimmed.substring(end + 2).trim();
+            }
+        }
+        return trimmed;
+    }
+
+    static boolean isSelect(String sql) {
+        return stripComment(sql).regionMatches(true, 0, "select", 0, 6);
+    }
+}
@@ -0,0 +1,139 @@
+package persistence;
+
+import entity.Address;
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.type.StandardBasicTypes;
+import org.hibernate.type.Type;
+import org.hibernate.usertype.CompositeUserType;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Objects;
+
+/**
+ * Address 매핑 (CITY, STREET, ZIPCODE 세 컬럼)
+ *
+ * 임베디드 타입은 로우마다 새 Address와 문자열 세 개를 만들어 영속성 컨텍스트에 남긴다.
+ * 도시와 우편번호는 종류가 적고, 같은 주소도 여러 주문에 반복되므로
+ * 로딩할 때 도시, 우편번호 문자열과 Address 인스턴스를 Interner로 정규화해서 같은 값은 같은 인스턴스를 쓴다.
+ * (JDBC 드라이버가 읽은 문자열은 바로 버려지므로 유지되는 힙이 줄어든다.)
+ * Address가 불변이라 스냅샷 복사(deepCopy)도 하지 않는다.
+ *
+ * 정규화 테이블 크기는 시스템 프로퍼티 address.intern.size로 바꿀 수 있다. (기본 4096, 0이면 정규화하지 않는다.)
+ *
+ * @Type(type = "persistence.AddressType")
+ * @Columns(columns = {@Column(name = "CITY"), @Column(name = "STREET"), @Column(name = "ZIPCODE")})
+ * private Address address;
+ */
+public class AddressType implements CompositeUserType {
+
+    private static final int INTERN_SIZE = Integer.getInteger("address.intern.size", 4096);
+
+    private static final Interner<String> CITIES = new Interner<String>(Math.min(INTERN_SIZE, 256));
+    private static final Interner<String> ZIPCODES = new Interner<String>(INTERN_SIZE);
+    private static final Interner<Address> ADDRESSES = new Interner<Address>(INTERN_SIZE);
+
+    private static final String[] PROPERTY_NAMES = {"city", "street", "zipcode"};
+    private static final Type[] PROPERTY_TYPES = {StandardBasicTypes.STRING, StandardBasicTypes.STRING, StandardBasicTypes.STRING};
+
+    @Override
+    public String[] getPropertyNames() {
+        return PROPERTY_NAMES;
+    }
+
+    @Override
+    public Type[] getPropertyTypes() {
+        return PROPERTY_TYPES;
+    }
+
+    @Override
+    public Object getPropertyValue(Object component, int property) throws HibernateException {
+        Address address = (Address) component;
+        switch (property) {
+            case 0:
+                return address.getCity();
+            case 1:
+                return address.getStreet();
+            case 2:
+                return address.getZipcode();
+            default:
+                throw new HibernateException("Unknown Address property: " + property);
+        }
+    }
+
+    @Override
+    public void setPropertyValue(Object component, int property, Object value) throws HibernateException {
+        throw new HibernateException("Address is immutable");
+    }
+
+    @Override
+    public Class<Address> returnedClass() {
+        return Address.class;
+    }
+
+    @Override
+    public boolean equals(Object x, Object y) throws HibernateException {
+        return Objects.equals(x, y);
+    }
+
+    @Override
+    public int hashCode(Object x) throws HibernateException {
+        return Objects.hashCode(x);
+    }
+
+    @Override
+    public Object nullSafeGet(ResultSet rs, String[] names, SessionImplementor session, Object owner)
+            throws HibernateException, SQLException {
+        String city = rs.getString(names[0]);
+        String street = rs.getString(names[1]);
+        String zipcode = rs.getString(names[2]);
+        if (city == null && street == null && zipcode == null) {
+            return null;
+        }
+        return ADDRESSES.intern(new Address(CITIES.intern(city), street, ZIPCODES.intern(zipcode)));
+    }
+
+    @Override
+    public void nullSafeSet(PreparedStatement st, Object value, int index, SessionImplementor session)
+            throws HibernateException, SQLException {
+        Address address = (Address) value;
+        StandardBasicTypes.STRING.nullSafeSet(st, address == null ? null : address.getCity(), index, session);
+        StandardBasicTypes.STRING.nullSafeSet(st, address == null ? null : address.getStreet(), index + 1, session);
+        StandardBasicTypes.STRING.nullSafeSet(st, address == null ? null : address.getZipcode(), index + 2, session);
+    }
+
+    @Override
+    public Object deepCopy(Object value) throws HibernateException {
+        return value;
+    }
+
+    @Override
+    public boolean isMutable() {
+        return false;
+    }
+
+    @Override
+    public Serializable disassemble(Object value, SessionImplementor session) throws HibernateException {
+        Address address = (Address) value;
+        return address == null ? null
+                : new String[]{address.getCity(), address.getStreet(), address.getZipcode()};
+    }
+
+    @Override
+    public Object assemble(Serializable cached, SessionImplementor session, Object owner) throws HibernateException {
+        if (cached == null) {
+            return null;
+        }
+        String[] values = (String[]) cached;
+        return ADDRESSES.intern(new Address(CITIES.intern(values[0]), values[1], ZIPCODES.intern(values[2])));
+    }
+
+    @Override
+    public Object replace(Object original, Object target, SessionImplementor session, Object owner)
+            throws HibernateException {
+        return original;
+    }
+}
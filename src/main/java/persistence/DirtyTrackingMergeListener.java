@@ -0,0 +1,36 @@
+package persistence;
+
+import entity.DirtyTrackedEntity;
+import org.hibernate.event.spi.MergeEvent;
+import org.hibernate.event.spi.MergeEventListener;
+
+import java.util.Map;
+
+/**
+ * merge()는 준영속 엔티티의 값을 세터를 거치지 않고 영속 엔티티에 복사하므로
+ * 복사받은 엔티티의 모든 필드를 변경 대상으로 표시한다. (DirtyTrackingStrategy와 함께 등록)
+ *
+ * <property name="hibernate.ejb.event.merge" value="persistence.DirtyTrackingMergeListener"/>
+ */
+public class DirtyTrackingMergeListener implements MergeEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public void onMerge(MergeEvent event) {
+        markAllDirty(event.getResult());
+    }
+
+    // MergeEventListener가 원시 타입 Map으로 선언해서 타입 인자를 붙이면 오버라이드가 되지 않는다.
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void onMerge(MergeEvent event, Map copiedAlready) {
+        markAllDirty(event.getResult());
+    }
+
+    private static void markAllDirty(Object result) {
+        if (result instanceof DirtyTrackedEntity) {
+            ((DirtyTrackedEntity) result).markAllDirty();
+        }
+    }
+}
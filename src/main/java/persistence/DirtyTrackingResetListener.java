@@ -0,0 +1,42 @@
+package persistence;
+
+import entity.DirtyTrackedEntity;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+/**
+ * INSERT한 뒤와 로딩한 뒤에 변경 기록을 지운다. (DirtyTrackingStrategy와 함께 등록)
+ * 저장 전에 세터로 남긴 기록이 다음 플러시마다 비교 대상이 되지 않게 한다.
+ * UPDATE한 뒤에는 하이버네이트가 DirtyTrackingStrategy.resetDirty()로 지운다.
+ *
+ * <property name="hibernate.ejb.event.post-insert" value="persistence.DirtyTrackingResetListener"/>
+ * <property name="hibernate.ejb.event.post-load" value="persistence.DirtyTrackingResetListener"/>
+ */
+public class DirtyTrackingResetListener implements PostInsertEventListener, PostLoadEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        clearDirty(event.getEntity());
+    }
+
+    @Override
+    public void onPostLoad(PostLoadEvent event) {
+        clearDirty(event.getEntity());
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    private static void clearDirty(Object entity) {
+        if (entity instanceof DirtyTrackedEntity) {
+            ((DirtyTrackedEntity) entity).clearDirty();
+        }
+    }
+}
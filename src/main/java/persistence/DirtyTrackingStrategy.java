@@ -0,0 +1,64 @@
+package persistence;
+
+import entity.DirtyTrackedEntity;
+import org.hibernate.CustomEntityDirtinessStrategy;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+
+/**
+ * 엔티티가 기록한 변경 필드(DirtyTrackedEntity)로 플러시 대상을 고른다.
+ *
+ * 기본 방식은 플러시마다 영속성 컨텍스트의 모든 엔티티를 스냅샷과 필드별로 비교한다.
+ * 이 전략은 기록이 없는 엔티티를 바로 건너뛰고, 기록된 필드만 스냅샷(이 영속성 컨텍스트가 로딩한 상태)과 비교한다.
+ * - 기록된 필드가 모두 원래 값이면 하이버네이트가 기본 방식으로 한 번 더 비교한다. (결과는 같다)
+ * - 로딩한 상태가 없는 엔티티는 기본 방식으로 비교한다.
+ *
+ * AttributeInformation.getLoadedValue()는 로딩한 상태가 아니라 데이터베이스를 다시 조회한 값이라 쓰지 않는다.
+ * (아직 INSERT 전인 엔티티는 로우가 없고, 다른 트랜잭션이 먼저 같은 값으로 바꾸면 UPDATE와 @Version 검사가 빠진다.)
+ *
+ * <property name="hibernate.entity_dirtiness_strategy" value="persistence.DirtyTrackingStrategy"/>
+ */
+public class DirtyTrackingStrategy implements CustomEntityDirtinessStrategy {
+
+    @Override
+    public boolean canDirtyCheck(Object entity, EntityPersister persister, Session session) {
+        return entity instanceof DirtyTrackedEntity && loadedState(entity, session) != null;
+    }
+
+    @Override
+    public boolean isDirty(Object entity, EntityPersister persister, Session session) {
+        return ((DirtyTrackedEntity) entity).isDirty();
+    }
+
+    @Override
+    public void resetDirty(Object entity, EntityPersister persister, Session session) {
+        if (entity instanceof DirtyTrackedEntity) {
+            ((DirtyTrackedEntity) entity).clearDirty();
+        }
+    }
+
+    /**
+     * doDirtyChecking()을 호출하지 않으면 하이버네이트가 기본 방식으로 비교한다.
+     */
+    @Override
+    public void findDirty(Object entity, EntityPersister persister, Session session,
+                          DirtyCheckContext dirtyCheckContext) {
+        if (!(entity instanceof DirtyTrackedEntity)) {
+            return;
+        }
+        Object[] loadedState = loadedState(entity, session);
+        if (loadedState == null) {
+            return;
+        }
+        DirtyTrackedEntity tracked = (DirtyTrackedEntity) entity;
+        dirtyCheckContext.doDirtyChecking(attribute -> tracked.isDirty(attribute.getName())
+                && !attribute.getType().isSame(attribute.getCurrentValue(), loadedState[attribute.getAttributeIndex()]));
+    }
+
+    private static Object[] loadedState(Object entity, Session session) {
+        EntityEntry entry = ((SessionImplementor) session).getPersistenceContext().getEntry(entity);
+        return entry == null ? null : entry.getLoadedState();
+    }
+}
@@ -0,0 +1,43 @@
+package persistence;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 크기가 정해진 정규화 테이블
+ *
+ * 같은 값이면 먼저 등록된 인스턴스를 돌려줘서 중복된 객체가 힙에 남지 않게 한다.
+ * 해시로 정한 슬롯 하나만 보고(direct-mapped), 다른 값이 있으면 덮어쓴다.
+ * 락이 없고 크기가 커지지 않는 대신 자주 나오지 않는 값은 밀려나서 정규화되지 않을 수 있다.
+ * (String.intern()은 크기 제한이 없고 전역이다.)
+ */
+public final class Interner<T> {
+
+    private final AtomicReferenceArray<T> table;
+    private final int mask;
+
+    /**
+     * @param capacity 슬롯 수 (2의 거듭제곱으로 올림), 0이면 정규화하지 않는다.
+     */
+    public Interner(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative: " + capacity);
+        }
+        int size = capacity == 0 ? 0 : Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.table = size == 0 ? null : new AtomicReferenceArray<T>(size);
+        this.mask = size - 1;
+    }
+
+    public T intern(T value) {
+        if (value == null || table == null) {
+            return value;
+        }
+        int hash = value.hashCode();
+        int index = (hash ^ (hash >>> 16)) & mask;
+        T existing = table.get(index);
+        if (value.equals(existing)) {
+            return existing;
+        }
+        table.lazySet(index, value);
+        return value;
+    }
+}
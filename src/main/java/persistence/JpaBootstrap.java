@@ -0,0 +1,155 @@
+package persistence;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import javax.persistence.Persistence;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * 영속성 유닛(jpa_lab_8_1) 부트스트랩
+ *
+ * 하이버네이트 기본 커넥션 관리는 운영용이 아니다.
+ * 여기서는 크기가 정해진 커넥션 풀(HikariCP)을 만들어 엔티티 매니저 팩토리에 데이터소스로 넘기고,
+ * 엔티티 매니저와 트랜잭션을 작업 단위로 열고 닫는다.
+ *
+ * 접속 정보와 풀 설정은 시스템 프로퍼티로 바꿀 수 있다.
+ * jdbc.url, jdbc.user, jdbc.password, pool.maximumPoolSize
+ *
+ * try (JpaBootstrap bootstrap = new JpaBootstrap()) {
+ *     List<Member> members = bootstrap.inTransaction(em -> em.createQuery(...).getResultList());
+ * }
+ */
+public class JpaBootstrap implements AutoCloseable {
+
+    private static final Logger log = Logger.getLogger(JpaBootstrap.class.getName());
+
+    public static final String PERSISTENCE_UNIT = "jpa_lab_8_1";
+
+    private final HikariDataSource dataSource;
+    private final EntityManagerFactory emf;
+
+    /**
+     * 시스템 프로퍼티 jpa.fastStartup=true면 fastStartupOverrides()를 적용한다.
+     */
+    public JpaBootstrap() {
+        this(defaultPoolConfig(), Boolean.getBoolean("jpa.fastStartup")
+                ? fastStartupOverrides() : new HashMap<String, Object>());
+    }
+
+    /**
+     * @param poolConfig 커넥션 풀 설정
+     * @param overrides persistence.xml 설정을 덮어쓸 속성
+     */
+    public JpaBootstrap(HikariConfig poolConfig, Map<String, ?> overrides) {
+        this.dataSource = new HikariDataSource(poolConfig);
+        try {
+            Map<String, Object> properties = new HashMap<String, Object>(overrides);
+            properties.put("javax.persistence.nonJtaDataSource", dataSource);
+            this.emf = Persistence.createEntityManagerFactory(PERSISTENCE_UNIT, properties);
+        } catch (RuntimeException | Error e) {
+            dataSource.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 기본 풀 설정
+     * - 최대 커넥션 수 : pool.maximumPoolSize (기본 10)
+     * - 최소 유휴 커넥션 수 : pool.minimumIdle (기본 2), 최대 커넥션 수보다 크면 최대 커넥션 수로 맞춘다.
+     * - 최소 유휴 커넥션 수를 넘는 유휴 커넥션은 10분이 지나면 닫고, 모든 커넥션은 30분이 지나면 교체한다.
+     *   (최소 유휴 커넥션 수가 최대 커넥션 수와 같으면 HikariCP는 유휴 시간 제한을 쓰지 않는다.)
+     * - 커넥션을 1분 넘게 반납하지 않으면 누수로 보고 로그를 남긴다.
+     */
+    public static HikariConfig defaultPoolConfig() {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(PERSISTENCE_UNIT);
+        config.setDriverClassName("org.h2.Driver");
+        config.setJdbcUrl(System.getProperty("jdbc.url", "jdbc:h2:tcp://localhost/~/test;QUERY_CACHE_SIZE=64"));
+        config.setUsername(System.getProperty("jdbc.user", "sa"));
+        config.setPassword(System.getProperty("jdbc.password", ""));
+        config.setMaximumPoolSize(Integer.getInteger("pool.maximumPoolSize", 10));
+        config.setMinimumIdle(Integer.getInteger("pool.minimumIdle", 2));
+        config.setIdleTimeout(TimeUnit.MINUTES.toMillis(10));
+        config.setMaxLifetime(TimeUnit.MINUTES.toMillis(30));
+        config.setConnectionTimeout(TimeUnit.SECONDS.toMillis(30));
+        config.setLeakDetectionThreshold(TimeUnit.MINUTES.toMillis(1));
+        config.setAutoCommit(false);
+        return config;
+    }
+
+    /**
+     * 짧게 실행되는 배치 작업용 시작 설정
+     * - 스키마를 만들지 않는다. (이미 있는 스키마 사용, DDL은 StartupCheck.SCHEMA_RESOURCE)
+     * - JDBC 메타데이터로 데이터베이스 기능을 조회하지 않는다. (방언 설정 사용)
+     * - 빌드 단계에서 검증한 결과(StartupCheck.QUERIES_RESOURCE)가 있으면 이름 있는 쿼리를 시작할 때 파싱하지 않는다.
+     *   파일은 있는지만 확인하고 읽지 않는다. 이름 있는 쿼리는 처음 실행할 때 Hibernate가 파싱한다.
+     */
+    public static Map<String, Object> fastStartupOverrides() {
+        Map<String, Object> overrides = new HashMap<String, Object>();
+        overrides.put("hibernate.hbm2ddl.auto", "none");
+        overrides.put("hibernate.temp.use_jdbc_metadata_defaults", "false");
+        boolean checked = JpaBootstrap.class.getClassLoader().getResource(StartupCheck.QUERIES_RESOURCE) != null;
+        if (!checked) {
+            log.warning(StartupCheck.QUERIES_RESOURCE + " not found, named queries are checked at startup");
+        }
+        overrides.put("hibernate.query.startup_check", String.valueOf(!checked));
+        return overrides;
+    }
+
+    public EntityManagerFactory getEntityManagerFactory() {
+        return emf;
+    }
+
+    public HikariDataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * 엔티티 매니저와 트랜잭션을 열어 작업을 실행한다.
+     * 정상 종료하면 커밋하고, 예외가 발생하면 롤백한다. 엔티티 매니저는 항상 닫는다.
+     * @param work 실행할 작업
+     * @return 작업 결과
+     */
+    public <R> R inTransaction(Function<EntityManager, R> work) {
+        EntityManager em = emf.createEntityManager();
+        EntityTransaction tx = em.getTransaction();
+        try {
+            tx.begin();
+            R result = work.apply(em);
+            tx.commit();
+            return result;
+        } catch (RuntimeException | Error e) {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    public void runInTransaction(Consumer<EntityManager> work) {
+        inTransaction(em -> {
+            work.accept(em);
+            return null;
+        });
+    }
+
+    @Override
+    public void close() {
+        try {
+            emf.close();
+        } finally {
+            dataSource.close();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package persistence;
+
+import com.zaxxer.hikari.HikariConfig;
+import entity.Member;
+import org.hibernate.Filter;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.metamodel.EntityType;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * 빌드 단계의 영속성 유닛 검증
+ *
+ * 메이븐 process-classes 단계에서 실행해서, 인메모리 H2로 영속성 유닛을 한 번 띄우고 다음을 클래스 디렉터리에 남긴다.
+ * - META-INF/jpa_lab_8_1-schema.sql : 매핑으로 만든 스키마 DDL
+ * - META-INF/jpa_lab_8_1-queries.properties : 엔티티 목록과 이름 있는 쿼리별 변환된 SQL
+ * 매핑이나 이름 있는 쿼리에 오류가 있으면 여기서 빌드가 실패한다.
+ *
+ * 실행할 때 JpaBootstrap.fastStartupOverrides()는 queries 파일이 클래스패스에 있으면 빌드에서 검증한 것으로 보고
+ * 시작 시 검증과 스키마 생성을 건너뛴다. 파일은 있는지만 확인하고 읽지 않는다. (변환된 SQL은 사람이 확인하는 용도)
+ * AppCDS 아카이브를 만들 때(-Pappcds)는 이 프로그램을 학습용 실행으로 쓴다.
+ *
+ * java -cp ... persistence.StartupCheck target/classes
+ */
+public class StartupCheck {
+
+    public static final String SCHEMA_RESOURCE = "META-INF/" + JpaBootstrap.PERSISTENCE_UNIT + "-schema.sql";
+    public static final String QUERIES_RESOURCE = "META-INF/" + JpaBootstrap.PERSISTENCE_UNIT + "-queries.properties";
+
+    public static void main(String[] args) throws IOException {
+        Path output = Paths.get(args.length > 0 ? args[0] : "target/classes");
+        Path schema = output.resolve(SCHEMA_RESOURCE);
+        Path queries = output.resolve(QUERIES_RESOURCE);
+        Files.createDirectories(schema.getParent());
+        // 스크립트 생성은 기존 파일 뒤에 덧붙인다.
+        Files.deleteIfExists(schema);
+
+        HikariConfig config = JpaBootstrap.defaultPoolConfig();
+        config.setJdbcUrl("jdbc:h2:mem:startup_check;DB_CLOSE_DELAY=-1");
+        // 4.3의 스키마 스크립트 생성이 팩토리를 닫을 때까지 커넥션 하나를 잡고 있어서 1개로는 트랜잭션을 시작하지 못한다.
+        config.setMaximumPoolSize(2);
+
+        Map<String, Object> overrides = new HashMap<String, Object>();
+        overrides.put("hibernate.show_sql", "false");
+        overrides.put("hibernate.hbm2ddl.auto", "create");
+        overrides.put("hibernate.query.startup_check", "true");
+        overrides.put("javax.persistence.schema-generation.scripts.action", "create");
+        overrides.put("javax.persistence.schema-generation.scripts.create-target", schema.toString());
+
+        try (JpaBootstrap bootstrap = new JpaBootstrap(config, overrides)) {
+            Properties translated = translate(bootstrap.getEntityManagerFactory());
+            try (Writer writer = Files.newBufferedWriter(queries, StandardCharsets.UTF_8)) {
+                translated.store(writer, "Generated by persistence.StartupCheck");
+            }
+            // 조회 경로의 클래스도 한 번 로딩한다. (AppCDS 학습)
+            bootstrap.runInTransaction(em -> em.createNamedQuery("Member.findAll", Member.class)
+                    .setMaxResults(1)
+                    .getResultList());
+        }
+        System.out.println("Startup check passed: " + schema + ", " + queries);
+    }
+
+    /**
+     * 엔티티에 선언한 이름 있는 쿼리를 SQL로 변환한다.
+     */
+    private static Properties translate(EntityManagerFactory emf) {
+        SessionFactoryImplementor sessionFactory = (SessionFactoryImplementor) emf.unwrap(SessionFactory.class);
+        Properties properties = new Properties();
+        TreeSet<String> entities = new TreeSet<String>();
+        for (EntityType<?> entityType : emf.getMetamodel().getEntities()) {
+            entities.add(entityType.getJavaType().getName());
+            for (NamedQuery namedQuery : namedQueries(entityType.getJavaType())) {
+                String[] sql = sessionFactory.getQueryPlanCache()
+                        .getHQLQueryPlan(namedQuery.query(), false, Collections.<String, Filter>emptyMap())
+                        .getSqlStrings();
+                properties.setProperty("query." + namedQuery.name(), String.join(";\n", sql));
+            }
+        }
+        properties.setProperty("entities", String.join(",", entities));
+        return properties;
+    }
+
+    private static List<NamedQuery> namedQueries(Class<?> entityClass) {
+        List<NamedQuery> result = new ArrayList<NamedQuery>();
+        NamedQuery single = entityClass.getAnnotation(NamedQuery.class);
+        if (single != null) {
+            result.add(single);
+        }
+        NamedQueries multiple = entityClass.getAnnotation(NamedQueries.class);
+        if (multiple != null) {
+            Collections.addAll(result, multiple.value());
+        }
+        return result;
+    }
+}
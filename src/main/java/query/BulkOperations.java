@@ -0,0 +1,154 @@
+package query;
+
+import org.hibernate.engine.spi.SessionImplementor;
+import persistence.JpaBootstrap;
+import rollup.Rollups;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * 벌크 연산 (JPQL UPDATE, DELETE)
+ *
+ * 엔티티를 하나씩 로딩해서 바꾸고 플러시하면 로우마다 SELECT 결과 객체화와 UPDATE가 한 번씩 일어난다.
+ * 벌크 연산은 한 문장으로 처리하지만 영속성 컨텍스트를 거치지 않으므로 이미 로딩한 엔티티가 데이터베이스와 달라진다.
+ * 여기서는 실행 후에
+ * - 현재 영속성 컨텍스트의 해당 엔티티를 준영속으로 만들거나(DETACH) 다시 읽고(REFRESH)
+ * - 2차 캐시의 해당 엔티티 영역을 비우고
+ * - 로우가 바뀌었으면 그 엔티티가 바꿀 수 있는 집계 테이블만 다시 계산한다. (Rollups.rebuild)
+ *   같은 트랜잭션에서 이미 모아 둔 그 테이블의 차이는 다시 계산에 들어가므로 버린다.
+ *
+ * @Version이 있는 엔티티(Product)의 UPDATE는 update versioned로 써야 한다. 그렇지 않으면 버전이 그대로라서
+ * 벌크 연산 전에 엔티티를 읽은 다른 트랜잭션이 바뀐 로우를 OptimisticLockException 없이 덮어쓴다.
+ * 빠뜨리면 IllegalArgumentException이 난다.
+ *
+ * int updated = BulkOperations.execute(em, Product.class,
+ *         "update versioned Product p set p.price = p.price * 110 / 100 where p.price < :limit",
+ *         Collections.singletonMap("limit", 10_000), BulkOperations.Coherence.DETACH);
+ *
+ * 로우가 많으면 executeChunked()로 식별자 범위를 나눠 구간마다 커밋해서 락을 오래 잡지 않게 한다.
+ * 이때 JPQL에는 식별자 범위 파라미터 :lo(포함), :hi(미포함)가 있어야 한다. (PartitionedScan과 같은 규칙)
+ */
+public class BulkOperations {
+
+    private static final Logger log = Logger.getLogger(BulkOperations.class.getName());
+
+    public enum Coherence {
+        /** 영속성 컨텍스트에서 분리한다. 다음에 조회하면 새로 읽는다. */
+        DETACH,
+        /** 데이터베이스에서 다시 읽는다. (엔티티마다 SELECT 한 번, DELETE에는 DETACH로 동작) */
+        REFRESH
+    }
+
+    private BulkOperations() {
+    }
+
+    /**
+     * 현재 트랜잭션에서 벌크 연산을 한 문장으로 실행한다.
+     * @param em 트랜잭션이 시작된 엔티티 매니저
+     * @param entityClass UPDATE, DELETE 대상 엔티티
+     * @param jpql 벌크 연산 JPQL
+     * @param parameters 이름 기준 파라미터
+     * @param coherence 영속성 컨텍스트에 있는 대상 엔티티 처리 방법
+     * @return 바뀐 로우 수
+     */
+    public static int execute(EntityManager em, Class<?> entityClass, String jpql,
+                              Map<String, ?> parameters, Coherence coherence) {
+        checkVersioned(em.getEntityManagerFactory(), entityClass, jpql);
+        // 아직 플러시하지 않은 변경이 벌크 연산보다 나중에 실행되지 않게 먼저 보낸다.
+        em.flush();
+        int updated = bind(em.createQuery(jpql), parameters).executeUpdate();
+
+        boolean delete = startsWith(jpql, "delete");
+        synchronize(em, entityClass, delete ? Coherence.DETACH : coherence);
+        em.getEntityManagerFactory().getCache().evict(entityClass);
+        if (updated > 0) {
+            Rollups.rebuild(em, entityClass, delete);
+        }
+        return updated;
+    }
+
+    /**
+     * 식별자 범위를 chunkSize씩 나눠서 구간마다 새 트랜잭션으로 실행한다.
+     * 실패하면 이미 커밋한 구간은 그대로 남는다. (같은 연산을 다시 실행해도 되게 JPQL을 작성한다.)
+     * 호출한 쪽이 가지고 있는 엔티티 매니저의 대상 엔티티는 직접 clear() 해야 한다.
+     * @return 바뀐 로우 수 합
+     */
+    public static long executeChunked(JpaBootstrap bootstrap, Class<?> entityClass, String jpql,
+                                      Map<String, ?> parameters, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        checkVersioned(bootstrap.getEntityManagerFactory(), entityClass, jpql);
+        IdRange range = bootstrap.inTransaction(em -> IdRange.of(em, entityClass));
+        if (range == null) {
+            return 0;
+        }
+        long total = 0;
+        for (long lo = range.min(); lo <= range.max(); lo += chunkSize) {
+            long from = lo;
+            long to = Math.min(lo + chunkSize, range.max() + 1);
+            total += bootstrap.inTransaction(em -> bind(em.createQuery(jpql), parameters)
+                    .setParameter("lo", from)
+                    .setParameter("hi", to)
+                    .executeUpdate());
+        }
+        log.fine(String.format("%s: %d rows in %d..%d", jpql, total, range.min(), range.max()));
+
+        bootstrap.getEntityManagerFactory().getCache().evict(entityClass);
+        if (total > 0) {
+            boolean delete = startsWith(jpql, "delete");
+            bootstrap.runInTransaction(em -> Rollups.rebuild(em, entityClass, delete));
+        }
+        return total;
+    }
+
+    /**
+     * 버전이 있는 엔티티의 UPDATE가 update versioned인지 확인한다.
+     */
+    private static void checkVersioned(EntityManagerFactory emf, Class<?> entityClass, String jpql) {
+        if (startsWith(jpql, "update")
+                && emf.getMetamodel().entity(entityClass).hasVersionAttribute()
+                && !startsWith(jpql.trim().substring("update".length()), "versioned")) {
+            throw new IllegalArgumentException(entityClass.getSimpleName()
+                    + " has a @Version attribute, use 'update versioned': " + jpql);
+        }
+    }
+
+    private static boolean startsWith(String jpql, String keyword) {
+        String trimmed = jpql.trim();
+        return trimmed.regionMatches(true, 0, keyword, 0, keyword.length())
+                && (trimmed.length() == keyword.length() || Character.isWhitespace(trimmed.charAt(keyword.length())));
+    }
+
+    private static Query bind(Query query, Map<String, ?> parameters) {
+        for (Map.Entry<String, ?> parameter : parameters.entrySet()) {
+            query.setParameter(parameter.getKey(), parameter.getValue());
+        }
+        return query;
+    }
+
+    /**
+     * 영속성 컨텍스트에 있는 entityClass 타입 엔티티를 분리하거나 다시 읽는다.
+     */
+    private static void synchronize(EntityManager em, Class<?> entityClass, Coherence coherence) {
+        List<Object> managed = new ArrayList<Object>();
+        for (Object entity : em.unwrap(SessionImplementor.class).getPersistenceContext().getEntitiesByKey().values()) {
+            if (entityClass.isInstance(entity)) {
+                managed.add(entity);
+            }
+        }
+        for (Object entity : managed) {
+            if (coherence == Coherence.REFRESH) {
+                em.refresh(entity);
+            } else {
+                em.detach(entity);
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package query;
+
+import org.hibernate.transform.BasicTransformerAdapter;
+import org.hibernate.transform.ResultTransformer;
+
+import javax.persistence.Query;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 여러 값 프로젝션을 레코드나 DTO로 바로 변환한다.
+ *
+ * Query로 여러 값을 조회하면 Object[]를 받아서 컬럼마다 캐스팅해야 한다.
+ * DtoProjection은 생성자를 MethodHandle로 한 번만 찾아 두고,
+ * 하이버네이트가 로우를 만드는 시점에 바로 DTO 생성자를 호출한다.
+ * 호출하는 쪽에는 Object[] 리스트도 캐스팅도 남지 않는다.
+ *
+ * 레코드는 정식(canonical) 생성자를, 일반 클래스는 하나뿐인 public 생성자를 사용한다.
+ * 생성자 파라미터 순서는 SELECT 절 순서와 같아야 한다.
+ *
+ * List<MemberSummary> result = DtoProjection.of(MemberSummary.class)
+ *         .getResultList(em.createQuery("SELECT m.username, m.age FROM Member m"));
+ */
+public final class DtoProjection<T> {
+
+    private static final ClassValue<DtoProjection<?>> CACHE = new ClassValue<DtoProjection<?>>() {
+        @Override
+        protected DtoProjection<?> computeValue(Class<?> type) {
+            return new DtoProjection<Object>(type);
+        }
+    };
+
+    private final Class<T> type;
+    private final int arity;
+    private final MethodHandle constructor;
+    // transformList()는 BasicTransformerAdapter가 목록을 그대로 돌려준다.
+    private final ResultTransformer transformer = new BasicTransformerAdapter() {
+        @Override
+        public Object transformTuple(Object[] tuple, String[] aliases) {
+            return map(tuple);
+        }
+    };
+
+    @SuppressWarnings("unchecked")
+    public static <T> DtoProjection<T> of(Class<T> type) {
+        return (DtoProjection<T>) CACHE.get(type);
+    }
+
+    @SuppressWarnings("unchecked")
+    private DtoProjection(Class<?> type) {
+        Constructor<?> target = findConstructor(type);
+        this.type = (Class<T>) type;
+        this.arity = target.getParameterCount();
+        try {
+            // (Object[])Object 시그니처로 맞춰 두면 배열 원소의 캐스팅, 언박싱은 핸들 안에서 처리된다.
+            this.constructor = MethodHandles.lookup().unreflectConstructor(target)
+                    .asSpreader(Object[].class, arity)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Constructor is not accessible: " + target, e);
+        }
+    }
+
+    /**
+     * 쿼리를 실행하고 결과를 DTO 리스트로 반환한다.
+     * @param query SELECT 절에 생성자 파라미터 순서대로 값을 나열한 쿼리
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> getResultList(Query query) {
+        return query.unwrap(org.hibernate.Query.class)
+                .setResultTransformer(transformer)
+                .list();
+    }
+
+    /**
+     * 이미 조회한 Object[] 결과를 변환한다.
+     */
+    public List<T> map(List<Object[]> rows) {
+        List<T> result = new ArrayList<T>(rows.size());
+        for (Object[] row : rows) {
+            result.add(map(row));
+        }
+        return result;
+    }
+
+    public T map(Object[] tuple) {
+        if (tuple.length != arity) {
+            throw new IllegalArgumentException(type.getName() + " expects " + arity
+                    + " columns but the query selected " + tuple.length);
+        }
+        try {
+            return type.cast((Object) constructor.invokeExact(tuple));
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to create " + type.getName(), e);
+        }
+    }
+
+    private static Constructor<?> findConstructor(Class<?> type) {
+        try {
+            if (type.isRecord()) {
+                RecordComponent[] components = type.getRecordComponents();
+                Class<?>[] parameterTypes = new Class<?>[components.length];
+                for (int i = 0; i < components.length; i++) {
+                    parameterTypes[i] = components[i].getType();
+                }
+                return type.getDeclaredConstructor(parameterTypes);
+            }
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("No canonical constructor: " + type.getName(), e);
+        }
+
+        Constructor<?> found = null;
+        for (Constructor<?> candidate : type.getConstructors()) {
+            if (Modifier.isPublic(candidate.getModifiers())) {
+                if (found != null) {
+                    throw new IllegalArgumentException("More than one public constructor: " + type.getName());
+                }
+                found = candidate;
+            }
+        }
+        if (found == null) {
+            throw new IllegalArgumentException("No public constructor: " + type.getName());
+        }
+        return found;
+    }
+}
@@ -0,0 +1,50 @@
+package query;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 이름 있는 페치 플랜(엔티티 그래프)
+ *
+ * 연관관계는 모두 지연 로딩으로 두고, 호출하는 쪽이 필요한 그래프를 골라서 한 번에 조회한다.
+ * 그래프에 포함한 연관관계는 조인으로 함께 조회하고, 나머지는 매핑대로(지연 로딩) 둔다. (loadgraph)
+ *
+ * List<Member> members = FetchPlans.apply(em,
+ *         em.createQuery("select m from Member m", Member.class), FetchPlans.MEMBER_WITH_TEAM)
+ *         .getResultList();
+ *
+ * 그래프는 각 엔티티의 @NamedEntityGraph로 정의한다.
+ */
+public final class FetchPlans {
+
+    /** 회원 + 팀 */
+    public static final String MEMBER_WITH_TEAM = "member-with-team";
+    /** 팀 + 회원 목록 */
+    public static final String TEAM_WITH_MEMBERS = "team-with-members";
+    /** 주문 + 회원 */
+    public static final String ORDER_WITH_MEMBER = "order-with-member";
+    /** 주문 + 회원 + 회원의 팀 + 상품 */
+    public static final String ORDER_FULL = "order-full";
+
+    private static final String LOAD_GRAPH = "javax.persistence.loadgraph";
+
+    private FetchPlans() {
+    }
+
+    /**
+     * 쿼리에 페치 플랜을 적용한다.
+     */
+    public static <T> TypedQuery<T> apply(EntityManager em, TypedQuery<T> query, String plan) {
+        return query.setHint(LOAD_GRAPH, em.getEntityGraph(plan));
+    }
+
+    /**
+     * 페치 플랜을 적용해서 식별자로 조회한다.
+     */
+    public static <T> T find(EntityManager em, Class<T> entityClass, Object id, String plan) {
+        Map<String, Object> hints = Collections.<String, Object>singletonMap(LOAD_GRAPH, em.getEntityGraph(plan));
+        return em.find(entityClass, id, hints);
+    }
+}
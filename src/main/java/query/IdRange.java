@@ -0,0 +1,25 @@
+package query;
+
+import javax.persistence.EntityManager;
+import javax.persistence.metamodel.EntityType;
+
+/**
+ * 엔티티 식별자의 최솟값과 최댓값 (식별자 범위로 나눠서 처리할 때 사용)
+ */
+public record IdRange(long min, long max) {
+
+    /**
+     * @return 데이터가 없으면 null
+     */
+    public static IdRange of(EntityManager em, Class<?> entityClass) {
+        EntityType<?> entityType = em.getMetamodel().entity(entityClass);
+        String id = "e." + entityType.getId(entityType.getIdType().getJavaType()).getName();
+        Object[] row = (Object[]) em.createQuery(
+                "SELECT min(" + id + "), max(" + id + ") FROM " + entityType.getName() + " e")
+                .getSingleResult();
+        if (row[0] == null) {
+            return null;
+        }
+        return new IdRange(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+    }
+}
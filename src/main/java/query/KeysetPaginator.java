@@ -0,0 +1,142 @@
+package query;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.metamodel.EntityType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 키셋(seek) 페이징
+ *
+ * setFirstResult()로 건너뛰는 페이징은 앞 페이지의 데이터를 모두 읽고 버리므로 뒤 페이지로 갈수록 느려진다.
+ * 키셋 페이징은 이전 페이지의 마지막 정렬 키와 식별자를 커서로 받아서 그 다음 데이터부터 조회한다.
+ *
+ * SELECT e FROM Member e
+ * WHERE e.username <= :key AND (e.username < :key OR e.id < :id)
+ * ORDER BY e.username DESC, e.id DESC
+ *
+ * 앞의 e.username <= :key 조건은 결과를 바꾸지 않지만 H2가 인덱스 범위 조회를 시작할 위치로 쓴다.
+ * (OR 조건만 있으면 인덱스를 쓰지 못하고 테이블 전체를 읽는다.)
+ * 정렬 방향과 같은 (정렬 키, 식별자) 복합 인덱스가 있으면 페이지 깊이와 관계없이 조회 비용이 같다.
+ * 정렬 키는 null이 아닌 String, Integer, Long 속성이어야 한다.
+ */
+public class KeysetPaginator<T> {
+
+    private final Class<T> entityClass;
+    private final String firstPageJpql;
+    private final String nextPageJpql;
+
+    /**
+     * @param em 엔티티 매니저 (메타모델 조회용)
+     * @param entityClass 조회할 엔티티 타입
+     * @param sortAttribute 정렬 키 속성 이름
+     * @param descending 내림차순 여부
+     */
+    public KeysetPaginator(EntityManager em, Class<T> entityClass, String sortAttribute, boolean descending) {
+        EntityType<T> entityType = em.getMetamodel().entity(entityClass);
+        String entityName = entityType.getName();
+        String idAttribute = entityType.getId(entityType.getIdType().getJavaType()).getName();
+
+        String key = "e." + sortAttribute;
+        String id = "e." + idAttribute;
+        String op = descending ? "<" : ">";
+        String opOrEqual = op + "=";
+        String direction = descending ? " DESC" : " ASC";
+
+        String select = "SELECT e, " + key + ", " + id + " FROM " + entityName + " e";
+        String orderBy = " ORDER BY " + key + direction + ", " + id + direction;
+
+        this.entityClass = entityClass;
+        this.firstPageJpql = select + orderBy;
+        this.nextPageJpql = select
+                + " WHERE " + key + " " + opOrEqual + " :key AND (" + key + " " + op + " :key OR " + id + " " + op + " :id)"
+                + orderBy;
+    }
+
+    /**
+     * 한 페이지를 조회한다.
+     * @param em 엔티티 매니저
+     * @param cursor 이전 페이지가 돌려준 커서, 첫 페이지면 null
+     * @param size 페이지 크기 (1 이상)
+     */
+    public Page<T> page(EntityManager em, String cursor, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be positive: " + size);
+        }
+        TypedQuery<Object[]> query;
+        if (cursor == null) {
+            query = em.createQuery(firstPageJpql, Object[].class);
+        } else {
+            Object[] decoded = decode(cursor);
+            query = em.createQuery(nextPageJpql, Object[].class)
+                    .setParameter("key", decoded[0])
+                    .setParameter("id", decoded[1]);
+        }
+        // 한 건을 더 조회해서 다음 페이지가 있는지 확인한다.
+        List<Object[]> rows = query.setMaxResults(size + 1).getResultList();
+
+        int count = Math.min(rows.size(), size);
+        List<T> content = new ArrayList<T>(count);
+        for (int i = 0; i < count; i++) {
+            content.add(entityClass.cast(rows.get(i)[0]));
+        }
+
+        String nextCursor = null;
+        if (rows.size() > size) {
+            Object[] last = rows.get(size - 1);
+            nextCursor = encode(last[1], last[2]);
+        }
+        return new Page<T>(content, nextCursor);
+    }
+
+    /**
+     * 커서는 "식별자|타입|정렬 키"를 URL-safe Base64로 인코딩한 문자열이다.
+     */
+    static String encode(Object key, Object id) {
+        String type;
+        if (key instanceof String) {
+            type = "S";
+        } else if (key instanceof Integer) {
+            type = "I";
+        } else if (key instanceof Long) {
+            type = "L";
+        } else {
+            throw new IllegalArgumentException("Unsupported sort key: " + key);
+        }
+        String raw = id + "|" + type + "|" + key;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Object[] decode(String cursor) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+        String[] parts = raw.split("\\|", 3);
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        Long id = Long.valueOf(parts[0]);
+        Object key;
+        switch (parts[1]) {
+            case "S":
+                key = parts[2];
+                break;
+            case "I":
+                key = Integer.valueOf(parts[2]);
+                break;
+            case "L":
+                key = Long.valueOf(parts[2]);
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        return new Object[]{key, id};
+    }
+}
@@ -0,0 +1,30 @@
+package query;
+
+import java.util.List;
+
+/**
+ * 키셋 페이징 결과
+ * 조회한 데이터와 다음 페이지를 조회할 커서를 담는다. 마지막 페이지면 커서는 null이다.
+ */
+public class Page<T> {
+
+    private final List<T> content;
+    private final String nextCursor;
+
+    public Page(List<T> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,41 @@
+package query;
+
+import org.hibernate.jpa.QueryHints;
+
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+
+/**
+ * 쿼리 결과 캐시 (쿼리 단위로 선택)
+ *
+ * 하이버네이트 쿼리 캐시를 사용한다.
+ * - 키 : SQL과 바인딩한 파라미터 값
+ * - 값 : 결과 엔티티의 식별자 목록 (엔티티는 2차 캐시에서 찾는다)
+ * - 무효화 : 엔티티 매니저로 테이블을 수정(벌크 연산 포함)하면 그 테이블을 읽은 결과는 자동으로 무효화된다.
+ * - 한도 : 영역별로 ehcache.xml에 설정한다.
+ *
+ * 결과 엔티티가 2차 캐시 대상이 아니면 캐시 적중 시에도 엔티티를 하나씩 다시 조회하므로 오히려 느려진다.
+ */
+public final class QueryCaching {
+
+    /** 회원 이름 조회 결과 영역 */
+    public static final String MEMBER_BY_USERNAME = "query.Member.findByUsername";
+
+    private QueryCaching() {
+    }
+
+    /**
+     * 이 쿼리의 결과를 region 영역에 캐시한다.
+     * @param query 캐시할 쿼리
+     * @param region 캐시 영역 (ehcache.xml에 크기와 만료 시간 설정)
+     */
+    public static <T> TypedQuery<T> cacheable(TypedQuery<T> query, String region) {
+        return query.setHint(QueryHints.HINT_CACHEABLE, true)
+                .setHint(QueryHints.HINT_CACHE_REGION, region);
+    }
+
+    public static Query cacheable(Query query, String region) {
+        return query.setHint(QueryHints.HINT_CACHEABLE, true)
+                .setHint(QueryHints.HINT_CACHE_REGION, region);
+    }
+}
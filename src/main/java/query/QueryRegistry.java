@@ -0,0 +1,163 @@
+package query;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JPQL 쿼리 핸들 레지스트리
+ *
+ * 처음 요청된 JPQL은 한 번 파싱, 변환해서 엔티티 매니저 팩토리에 이름 있는 쿼리로 등록하고,
+ * 다음 요청부터는 등록된 이름으로 쿼리를 만들어 파라미터 바인딩과 실행만 한다.
+ * 등록된 핸들은 최대 maxSize개까지 유지하고, 넘치면 가장 오래 쓰이지 않은 핸들부터 버린다. (LRU)
+ * 팩토리에서 이름 있는 쿼리를 지울 수는 없으므로 버린 핸들의 이름을 다음 등록에 재사용한다.
+ * 그래서 팩토리에 등록되는 이름도 maxSize + 1개를 넘지 않는다.
+ *
+ * 엔티티에 @NamedQuery로 선언한 쿼리는 팩토리 생성 시점에 하이버네이트가 이미 컴파일하므로
+ * em.createNamedQuery()를 바로 쓰면 된다. 이 레지스트리는 실행 시점에 조립되는 JPQL을 위한 것이다.
+ */
+public class QueryRegistry {
+
+    private final EntityManagerFactory emf;
+    private final int maxSize;
+    private final Map<String, Handle> handles;
+    private final Deque<String> freeNames = new ArrayDeque<String>();
+
+    private long sequence;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public QueryRegistry(EntityManagerFactory emf, int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.emf = emf;
+        this.maxSize = maxSize;
+        this.handles = new LinkedHashMap<String, Handle>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Handle> eldest) {
+                if (size() > QueryRegistry.this.maxSize) {
+                    evictionCount.incrementAndGet();
+                    eldest.getValue().evicted = true;
+                    freeNames.push(eldest.getValue().name);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 자주 쓰는 JPQL을 미리 컴파일해 둔다. 애플리케이션 시작 시점에 호출한다.
+     * @param jpqls 미리 등록할 JPQL
+     */
+    public void warmUp(Collection<String> jpqls) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            for (String jpql : jpqls) {
+                handle(em, jpql);
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * JPQL에 해당하는 쿼리 핸들을 반환한다. 파라미터 바인딩 후 바로 실행하면 된다.
+     * @param em 엔티티 매니저
+     * @param jpql 실행할 JPQL
+     * @param resultClass 반환 타입
+     */
+    public <T> TypedQuery<T> createQuery(EntityManager em, String jpql, Class<T> resultClass) {
+        while (true) {
+            Handle handle = handle(em, jpql);
+            try {
+                TypedQuery<T> query = em.createNamedQuery(handle.name, resultClass);
+                if (!handle.evicted) {
+                    return query;
+                }
+            } catch (IllegalArgumentException e) {
+                if (!handle.evicted) {
+                    throw e;
+                }
+            }
+            // 이름을 얻은 뒤 핸들이 밀려나서 그 이름이 다른 JPQL에 재사용되었을 수 있다. 다시 찾는다.
+        }
+    }
+
+    /**
+     * 같은 JPQL을 동시에 처음 요청해도 한 번만 등록하도록 잠금 안에서 찾고 등록한다.
+     */
+    private Handle handle(EntityManager em, String jpql) {
+        synchronized (handles) {
+            Handle handle = handles.get(jpql);
+            if (handle != null) {
+                hitCount.incrementAndGet();
+                return handle;
+            }
+            missCount.incrementAndGet();
+            handle = register(em, jpql);
+            handles.put(jpql, handle);
+            return handle;
+        }
+    }
+
+    private Handle register(EntityManager em, String jpql) {
+        // createQuery() 시점에 JPQL 파싱과 SQL 변환이 일어난다.
+        Query query = em.createQuery(jpql);
+        String name = freeNames.isEmpty() ? "QueryRegistry." + (++sequence) : freeNames.pop();
+        // 같은 이름으로 다시 등록하면 팩토리의 이전 정의를 덮어쓴다.
+        emf.addNamedQuery(name, query);
+        return new Handle(name);
+    }
+
+    public int size() {
+        synchronized (handles) {
+            return handles.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public double getHitRatio() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryRegistry{size=" + size() + ", maxSize=" + maxSize
+                + ", hits=" + getHitCount() + ", misses=" + getMissCount()
+                + ", evictions=" + getEvictionCount() + "}";
+    }
+
+    private static final class Handle {
+
+        final String name;
+        /** 밀려난 뒤에는 이름이 다른 JPQL에 재사용될 수 있다. */
+        volatile boolean evicted;
+
+        Handle(String name) {
+            this.name = name;
+        }
+    }
+}
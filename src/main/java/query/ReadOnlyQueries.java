@@ -0,0 +1,52 @@
+package query;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.jpa.QueryHints;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+
+/**
+ * 읽기 전용 조회
+ *
+ * 영속성 컨텍스트는 조회한 엔티티마다 스냅샷을 보관하고 flush 시점에 모든 필드를 비교한다. (변경 감지)
+ * 수정하지 않을 엔티티를 읽기 전용으로 조회하면 스냅샷을 보관하지 않고 변경 감지 대상에서도 빠진다.
+ * 읽기 전용 엔티티를 수정해도 데이터베이스에 반영되지 않는다.
+ *
+ * - 쿼리 단위 : ReadOnlyQueries.readOnly(em.createQuery(...))
+ * - 엔티티 매니저 단위 : ReadOnlyQueries.createEntityManager(emf)
+ */
+public final class ReadOnlyQueries {
+
+    private ReadOnlyQueries() {
+    }
+
+    /**
+     * 이 쿼리로 조회한 엔티티를 읽기 전용으로 만든다.
+     */
+    public static <T> TypedQuery<T> readOnly(TypedQuery<T> query) {
+        return query.setHint(QueryHints.HINT_READONLY, true);
+    }
+
+    public static Query readOnly(Query query) {
+        return query.setHint(QueryHints.HINT_READONLY, true);
+    }
+
+    /**
+     * 이 엔티티 매니저로 조회하는 모든 엔티티를 읽기 전용으로 만든다.
+     * 변경할 엔티티가 없으므로 플러시 모드도 MANUAL로 바꿔서 커밋이나 쿼리 실행 전의 flush를 생략한다.
+     */
+    public static EntityManager readOnly(EntityManager em) {
+        Session session = em.unwrap(Session.class);
+        session.setDefaultReadOnly(true);
+        session.setFlushMode(FlushMode.MANUAL);
+        return em;
+    }
+
+    public static EntityManager createEntityManager(EntityManagerFactory emf) {
+        return readOnly(emf.createEntityManager());
+    }
+}
@@ -0,0 +1,129 @@
+package query;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.EntityKey;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 대량 조회 결과를 스트림으로 읽는다.
+ *
+ * getResultList()는 결과 전체를 영속성 컨텍스트와 List에 올린다.
+ * 여기서는 전진 전용(FORWARD_ONLY) JDBC 커서로 fetchSize만큼씩 읽고,
+ * clearEvery건마다 스트림을 연 뒤 영속성 컨텍스트에 들어온 엔티티를 준영속 상태로 만들어서
+ * 결과 건수와 관계없이 메모리 사용량을 일정하게 유지한다. 스트림을 열기 전에 관리하던 엔티티는 그대로 둔다.
+ * 조회 대상이 여러 개면(SELECT o.member, o.orderAmount ...) 로우마다 Object[]를 넘긴다.
+ *
+ * 주의
+ * - 이미 넘겨받은 엔티티는 준영속 상태가 될 수 있다. 스트림을 읽는 중에 수정한 내용은 그 전에 flush 해야 반영된다.
+ * - 컬렉션 페치 조인 쿼리는 한 엔티티가 여러 로우에 걸치므로 스트림으로 읽으면 안 된다.
+ * - 다 쓴 스트림은 반드시 닫아야 JDBC 커서가 반환된다. (try-with-resources)
+ */
+public class ResultStreams {
+
+    public static final int DEFAULT_FETCH_SIZE = 1_000;
+
+    private ResultStreams() {
+    }
+
+    public static <T> Stream<T> stream(EntityManager em, TypedQuery<T> query) {
+        return stream(em, query, DEFAULT_FETCH_SIZE, DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * @param em 엔티티 매니저
+     * @param query 실행할 쿼리 (파라미터 바인딩까지 마친 상태)
+     * @param fetchSize JDBC 드라이버가 한 번에 가져올 로우 수
+     * @param clearEvery 영속성 컨텍스트를 비울 주기 (건수)
+     */
+    public static <T> Stream<T> stream(EntityManager em, TypedQuery<T> query, int fetchSize, int clearEvery) {
+        if (fetchSize <= 0 || clearEvery <= 0) {
+            throw new IllegalArgumentException("fetchSize and clearEvery must be positive");
+        }
+        Session session = em.unwrap(Session.class);
+        org.hibernate.Query hqlQuery = query.unwrap(org.hibernate.Query.class);
+        boolean multiColumn = hqlQuery.getReturnTypes().length > 1;
+        ScrollableResults results = hqlQuery
+                .setFetchSize(fetchSize)
+                .scroll(ScrollMode.FORWARD_ONLY);
+
+        return StreamSupport.stream(new ScrollSpliterator<T>(session, results, multiColumn, clearEvery), false)
+                .onClose(results::close);
+    }
+
+    private static class ScrollSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+
+        private final Session session;
+        private final PersistenceContext persistenceContext;
+        private final Set<EntityKey> managedBefore;
+        private final ScrollableResults results;
+        private final boolean multiColumn;
+        private final int clearEvery;
+        private long count;
+
+        ScrollSpliterator(Session session, ScrollableResults results, boolean multiColumn, int clearEvery) {
+            // 스칼라 조회(SELECT m.team.name ...)는 null을 넘길 수 있으므로 NONNULL이 아니다.
+            super(Long.MAX_VALUE, Spliterator.ORDERED);
+            this.session = session;
+            this.persistenceContext = ((SessionImplementor) session).getPersistenceContext();
+            this.managedBefore = new HashSet<EntityKey>(entitiesByKey(persistenceContext).keySet());
+            this.results = results;
+            this.multiColumn = multiColumn;
+            this.clearEvery = clearEvery;
+        }
+
+        // 로우 값의 타입은 쿼리를 만들 때 지정한 T다. (TypedQuery)
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (count > 0 && count % clearEvery == 0) {
+                evictLoaded();
+            }
+            if (!results.next()) {
+                return false;
+            }
+            count++;
+            action.accept((T) (multiColumn ? results.get() : results.get(0)));
+            return true;
+        }
+
+        /**
+         * 스트림을 연 뒤 로딩한 엔티티만 준영속 상태로 만든다. (연관 엔티티와 컬렉션 포함)
+         */
+        private void evictLoaded() {
+            Map<EntityKey, Object> entities = entitiesByKey(persistenceContext);
+            List<Object> loaded = new ArrayList<Object>();
+            for (Map.Entry<EntityKey, Object> entry : entities.entrySet()) {
+                if (!managedBefore.contains(entry.getKey())) {
+                    loaded.add(entry.getValue());
+                }
+            }
+            for (Object entity : loaded) {
+                session.evict(entity);
+            }
+        }
+
+        /**
+         * 하이버네이트 4.3의 getEntitiesByKey()는 원시 타입 Map을 반환한다. 키는 EntityKey, 값은 엔티티다.
+         */
+        @SuppressWarnings("unchecked")
+        private static Map<EntityKey, Object> entitiesByKey(PersistenceContext persistenceContext) {
+            return persistenceContext.getEntitiesByKey();
+        }
+    }
+}
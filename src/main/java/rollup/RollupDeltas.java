@@ -0,0 +1,207 @@
+package rollup;
+
+import org.hibernate.HibernateException;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * 트랜잭션 하나 동안 모은 집계 차이
+ * 키(식별자) 순서대로 정렬해 두고 커밋 직전에 반영한다.
+ */
+class RollupDeltas implements BeforeTransactionCompletionProcess, AfterTransactionCompletionProcess {
+
+    private static final String DUPLICATE_KEY = "23505";
+    private static final int MAX_INSERT_ATTEMPTS = 3;
+
+    private final Map<Long, long[]> teams = new TreeMap<Long, long[]>();
+    private final Map<Long, long[]> members = new TreeMap<Long, long[]>();
+    private final Map<Long, long[]> products = new TreeMap<Long, long[]>();
+    private final Set<Long> removedTeams = new TreeSet<Long>();
+    private final Set<Long> removedMembers = new TreeSet<Long>();
+    private final Set<Long> removedProducts = new TreeSet<Long>();
+
+    void team(Long teamId, long memberCount, long ageSum) {
+        add(teams, teamId, memberCount, ageSum);
+    }
+
+    void member(Long memberId, long orderCount) {
+        add(members, memberId, orderCount, 0);
+    }
+
+    void product(Long productId, long orderedAmount) {
+        add(products, productId, orderedAmount, 0);
+    }
+
+    void teamRemoved(Long teamId) {
+        removedTeams.add(teamId);
+    }
+
+    void memberRemoved(Long memberId) {
+        removedMembers.add(memberId);
+    }
+
+    void productRemoved(Long productId) {
+        removedProducts.add(productId);
+    }
+
+    private static void add(Map<Long, long[]> deltas, Long id, long first, long second) {
+        if (id == null) {
+            return;
+        }
+        long[] delta = deltas.computeIfAbsent(id, key -> new long[2]);
+        delta[0] += first;
+        delta[1] += second;
+    }
+
+    @Override
+    public void doBeforeTransactionCompletion(SessionImplementor session) {
+        try {
+            Connection connection = session.connection();
+            apply(connection, teams,
+                    "UPDATE TEAM_STATS SET MEMBERCOUNT = MEMBERCOUNT + ?, AGESUM = AGESUM + ? WHERE TEAMID = ?",
+                    "INSERT INTO TEAM_STATS (MEMBERCOUNT, AGESUM, TEAMID) VALUES (?, ?, ?)");
+            apply(connection, members,
+                    "UPDATE MEMBER_STATS SET ORDERCOUNT = ORDERCOUNT + ? WHERE MEMBERID = ?",
+                    "INSERT INTO MEMBER_STATS (ORDERCOUNT, MEMBERID) VALUES (?, ?)");
+            apply(connection, products,
+                    "UPDATE PRODUCT_STATS SET ORDEREDAMOUNT = ORDEREDAMOUNT + ? WHERE PRODUCTID = ?",
+                    "INSERT INTO PRODUCT_STATS (ORDEREDAMOUNT, PRODUCTID) VALUES (?, ?)");
+            delete(connection, removedTeams, "DELETE FROM TEAM_STATS WHERE TEAMID = ?");
+            delete(connection, removedMembers, "DELETE FROM MEMBER_STATS WHERE MEMBERID = ?");
+            delete(connection, removedProducts, "DELETE FROM PRODUCT_STATS WHERE PRODUCTID = ?");
+        } catch (SQLException e) {
+            throw new HibernateException("Failed to update rollup tables", e);
+        }
+    }
+
+    /**
+     * 커밋, 롤백 모두 차이를 비운다.
+     * 롤백하면 커밋 직전 처리(doBeforeTransactionCompletion)가 세션의 ActionQueue에 남아 있다가
+     * 같은 엔티티 매니저의 다음 커밋에서 실행되므로, 비워 두어야 롤백한 차이가 반영되지 않는다.
+     */
+    @Override
+    public void doAfterTransactionCompletion(boolean success, SessionImplementor session) {
+        clear();
+        RollupEventListener.completed(session);
+    }
+
+    void clear() {
+        discard(EnumSet.allOf(Rollups.Table.class));
+    }
+
+    /**
+     * 다시 계산한 테이블의 차이를 버린다.
+     */
+    void discard(Set<Rollups.Table> tables) {
+        if (tables.contains(Rollups.Table.TEAM_STATS)) {
+            teams.clear();
+            removedTeams.clear();
+        }
+        if (tables.contains(Rollups.Table.MEMBER_STATS)) {
+            members.clear();
+            removedMembers.clear();
+        }
+        if (tables.contains(Rollups.Table.PRODUCT_STATS)) {
+            products.clear();
+            removedProducts.clear();
+        }
+    }
+
+    private static void delete(Connection connection, Set<Long> ids, String delete) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = connection.prepareStatement(delete)) {
+            for (Long id : ids) {
+                ps.setLong(1, id);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * 차이를 UPDATE로 더하고, 갱신된 로우가 없는 키는 INSERT한다.
+     * 두 SQL 모두 마지막 파라미터가 키이고, 앞의 파라미터는 값 차이다.
+     *
+     * 같은 키를 처음 갱신하는 트랜잭션이 동시에 INSERT하면 늦은 쪽은 키 중복으로 실패한다.
+     * 그때는 세이브포인트로 INSERT만 되돌리고 먼저 커밋된 로우에 UPDATE로 더한다.
+     */
+    private static void apply(Connection connection, Map<Long, long[]> deltas, String update, String insert)
+            throws SQLException {
+        int values = countParameters(update) - 1;
+        Map<Long, long[]> missing = new TreeMap<Long, long[]>();
+        try (PreparedStatement ps = connection.prepareStatement(update)) {
+            for (Map.Entry<Long, long[]> entry : deltas.entrySet()) {
+                long[] delta = entry.getValue();
+                if (delta[0] == 0 && delta[1] == 0) {
+                    continue;
+                }
+                bind(ps, entry.getKey(), delta, values);
+                if (ps.executeUpdate() == 0) {
+                    missing.put(entry.getKey(), delta);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement insertPs = connection.prepareStatement(insert);
+             PreparedStatement updatePs = connection.prepareStatement(update)) {
+            for (Map.Entry<Long, long[]> entry : missing.entrySet()) {
+                insert(connection, insertPs, updatePs, entry.getKey(), entry.getValue(), values);
+            }
+        }
+    }
+
+    private static void insert(Connection connection, PreparedStatement insert, PreparedStatement update,
+                               Long id, long[] delta, int values) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            Savepoint savepoint = connection.setSavepoint();
+            try {
+                bind(insert, id, delta, values);
+                insert.executeUpdate();
+                connection.releaseSavepoint(savepoint);
+                return;
+            } catch (SQLException e) {
+                connection.rollback(savepoint);
+                if (!DUPLICATE_KEY.equals(e.getSQLState()) || attempt == MAX_INSERT_ATTEMPTS) {
+                    throw e;
+                }
+            }
+            bind(update, id, delta, values);
+            if (update.executeUpdate() > 0) {
+                return;
+            }
+            // 먼저 INSERT한 트랜잭션이 롤백했으면 다시 INSERT한다.
+        }
+    }
+
+    private static void bind(PreparedStatement ps, Long id, long[] delta, int values) throws SQLException {
+        for (int i = 0; i < values; i++) {
+            ps.setLong(i + 1, delta[i]);
+        }
+        ps.setLong(values + 1, id);
+    }
+
+    private static int countParameters(String sql) {
+        int count = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) == '?') {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,166 @@
+package rollup;
+
+import entity.Member;
+import entity.Order;
+import entity.Product;
+import entity.Team;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.tuple.entity.EntityMetamodel;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.logging.Logger;
+
+/**
+ * 집계 테이블 갱신
+ *
+ * 회원, 주문이 저장, 수정, 삭제될 때 이전 상태와 새 상태의 차이만큼 집계 값을 더하고 뺀다.
+ * - TEAM_STATS : 팀별 회원 수, 나이 합 (회원의 team, age)
+ * - MEMBER_STATS : 회원별 주문 수 (주문의 member)
+ * - PRODUCT_STATS : 상품별 주문 수량 합 (주문의 product, orderAmount)
+ *
+ * 플러시할 때마다 바로 UPDATE하지 않고 트랜잭션 동안 키별로 차이를 모아 두었다가 커밋 직전에 한 번씩 반영한다.
+ * 같은 팀의 집계 로우를 여러 트랜잭션이 동시에 갱신하므로 로우 락을 잡는 시간을 커밋 직전으로 줄이고,
+ * 키 순서대로 갱신해서 트랜잭션끼리 교착 상태에 빠지지 않게 한다. 롤백하면 반영하지 않는다.
+ * 팀, 상품을 삭제하면 그 집계 로우도 지운다.
+ *
+ * persistence.xml에 이벤트 리스너로 등록한다.
+ * <property name="hibernate.ejb.event.post-insert" value="rollup.RollupEventListener"/>
+ *
+ * 벌크 연산(JPQL UPDATE, DELETE)과 JDBC로 직접 바꾼 데이터는 이벤트가 없으므로 Rollups.rebuild()로 다시 만든다.
+ * 같은 트랜잭션에서 다시 만들면 그 테이블에 모아 둔 차이는 버린다.
+ */
+public class RollupEventListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger log = Logger.getLogger(RollupEventListener.class.getName());
+
+    // 이벤트 종류마다 리스너 인스턴스가 따로 만들어지므로 세션별 차이는 공유 맵에 둔다.
+    // 트랜잭션이 끝나면(커밋, 롤백) 지우고, 트랜잭션을 끝내지 않고 버린 세션은 GC가 정리하도록 약한 참조로 둔다.
+    // (값인 RollupDeltas는 세션을 참조하지 않아야 한다.)
+    private static final Map<EventSource, RollupDeltas> pending =
+            Collections.synchronizedMap(new WeakHashMap<EventSource, RollupDeltas>());
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        apply(event.getSession(), event.getPersister(), event.getEntity(), event.getId(), null, event.getState());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getOldState() == null) {
+            // 준영속 엔티티를 select-before-update 없이 update()하면 이전 상태를 알 수 없다.
+            if (event.getEntity() instanceof Member || event.getEntity() instanceof Order) {
+                log.warning("Rollup skipped for " + event.getPersister().getEntityName() + "#" + event.getId()
+                        + ": no previous state, call Rollups.rebuild()");
+            }
+            return;
+        }
+        apply(event.getSession(), event.getPersister(), event.getEntity(), event.getId(),
+                event.getOldState(), event.getState());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        apply(event.getSession(), event.getPersister(), event.getEntity(), event.getId(), event.getDeletedState(), null);
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    private static void apply(EventSource session, EntityPersister persister, Object entity, Serializable id,
+                              Object[] oldState, Object[] newState) {
+        EntityMetamodel model = persister.getEntityMetamodel();
+        if (entity instanceof Member) {
+            int team = model.getPropertyIndex("team");
+            int age = model.getPropertyIndex("age");
+            RollupDeltas deltas = deltas(session);
+            if (oldState != null) {
+                deltas.team(id(session, oldState[team]), -1, -(Integer) oldState[age]);
+            }
+            if (newState != null) {
+                deltas.team(id(session, newState[team]), 1, (Integer) newState[age]);
+            } else {
+                deltas.memberRemoved((Long) id);
+            }
+        } else if (entity instanceof Order) {
+            int member = model.getPropertyIndex("member");
+            int product = model.getPropertyIndex("product");
+            int orderAmount = model.getPropertyIndex("orderAmount");
+            RollupDeltas deltas = deltas(session);
+            if (oldState != null) {
+                deltas.member(id(session, oldState[member]), -1);
+                deltas.product(id(session, oldState[product]), -(Integer) oldState[orderAmount]);
+            }
+            if (newState != null) {
+                deltas.member(id(session, newState[member]), 1);
+                deltas.product(id(session, newState[product]), (Integer) newState[orderAmount]);
+            }
+        } else if (entity instanceof Team && newState == null) {
+            deltas(session).teamRemoved((Long) id);
+        } else if (entity instanceof Product && newState == null) {
+            deltas(session).productRemoved((Long) id);
+        }
+    }
+
+    /**
+     * 세션의 현재 트랜잭션에 모으고 있는 차이, 처음이면 커밋 직전 반영과 완료 후 정리를 등록한다.
+     */
+    private static RollupDeltas deltas(EventSource session) {
+        RollupDeltas deltas = pending.get(session);
+        if (deltas == null) {
+            deltas = new RollupDeltas();
+            pending.put(session, deltas);
+            session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) deltas);
+            session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) deltas);
+        }
+        return deltas;
+    }
+
+    /**
+     * 현재 트랜잭션에서 다시 계산한 테이블의 차이를 버린다. (Rollups.rebuild)
+     */
+    static void rebuilt(SessionImplementor session, Set<Rollups.Table> tables) {
+        RollupDeltas deltas = pending.get(session);
+        if (deltas != null) {
+            deltas.discard(tables);
+        }
+    }
+
+    /**
+     * 트랜잭션이 끝난 세션의 차이를 버린다.
+     */
+    static void completed(SessionImplementor session) {
+        pending.remove(session);
+    }
+
+    /**
+     * 연관 엔티티의 식별자, 프록시는 초기화하지 않는다.
+     */
+    private static Long id(EventSource session, Object entity) {
+        if (entity == null) {
+            return null;
+        }
+        if (entity instanceof HibernateProxy) {
+            return (Long) ((HibernateProxy) entity).getHibernateLazyInitializer().getIdentifier();
+        }
+        return (Long) session.getEntityPersister(null, entity).getIdentifier(entity, session);
+    }
+}
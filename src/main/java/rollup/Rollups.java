@@ -0,0 +1,131 @@
+package rollup;
+
+import entity.Member;
+import entity.Order;
+import entity.Product;
+import entity.Team;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionImplementor;
+
+import javax.persistence.EntityManager;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * 집계 테이블 전체 재계산
+ *
+ * RollupEventListener는 엔티티 이벤트로만 집계를 갱신하므로
+ * JDBC로 직접 적재했거나 벌크 연산을 실행한 뒤에는 원본 테이블에서 다시 계산한다.
+ *
+ * 집계 조회는 식별자로 바로 찾는다.
+ * em.find(TeamStats.class, teamId).getAverageAge()
+ *   == select avg(m.age) from Member m where m.team.id = :teamId
+ * em.find(MemberStats.class, memberId).getOrderCount()
+ *   == select count(o) from Order o where o.member.id = :memberId
+ * em.find(ProductStats.class, productId).getOrderedAmount()
+ *   == select sum(o.orderAmount) from Order o where o.product.id = :productId
+ * 집계 로우가 없으면(회원, 주문이 하나도 없으면) null이다.
+ *
+ * 다시 계산하는 테이블은 전체를 지우고 다시 넣으므로 그 테이블의 모든 로우에 락을 잡는다.
+ * 벌크 연산 뒤에는 rebuild(em, entityClass, delete)로 그 엔티티가 바꿀 수 있는 테이블만 다시 계산한다.
+ */
+public class Rollups {
+
+    /**
+     * 집계 테이블과 다시 계산하는 SQL
+     */
+    enum Table {
+        TEAM_STATS("INSERT INTO TEAM_STATS (TEAMID, MEMBERCOUNT, AGESUM) "
+                + "SELECT TEAM_ID, COUNT(*), SUM(AGE) FROM MEMBER WHERE TEAM_ID IS NOT NULL GROUP BY TEAM_ID"),
+        MEMBER_STATS("INSERT INTO MEMBER_STATS (MEMBERID, ORDERCOUNT) "
+                + "SELECT MEMBER_ID, COUNT(*) FROM ORDERS WHERE MEMBER_ID IS NOT NULL GROUP BY MEMBER_ID"),
+        PRODUCT_STATS("INSERT INTO PRODUCT_STATS (PRODUCTID, ORDEREDAMOUNT) "
+                + "SELECT PRODUCT_ID, SUM(ORDERAMOUNT) FROM ORDERS WHERE PRODUCT_ID IS NOT NULL GROUP BY PRODUCT_ID");
+
+        private final String insert;
+
+        Table(String insert) {
+            this.insert = insert;
+        }
+    }
+
+    private Rollups() {
+    }
+
+    /**
+     * entityClass의 벌크 연산이 바꿀 수 있는 집계 테이블
+     * - 회원 : TEAM_STATS(팀, 나이), MEMBER_STATS(삭제한 회원의 로우)
+     * - 주문 : MEMBER_STATS, PRODUCT_STATS
+     * - 팀, 상품 : 삭제할 때만 TEAM_STATS, PRODUCT_STATS
+     */
+    static Set<Table> affectedTables(Class<?> entityClass, boolean delete) {
+        Set<Table> tables = EnumSet.noneOf(Table.class);
+        if (Member.class.isAssignableFrom(entityClass)) {
+            tables.add(Table.TEAM_STATS);
+            tables.add(Table.MEMBER_STATS);
+        } else if (Order.class.isAssignableFrom(entityClass)) {
+            tables.add(Table.MEMBER_STATS);
+            tables.add(Table.PRODUCT_STATS);
+        } else if (delete && Team.class.isAssignableFrom(entityClass)) {
+            tables.add(Table.TEAM_STATS);
+        } else if (delete && Product.class.isAssignableFrom(entityClass)) {
+            tables.add(Table.PRODUCT_STATS);
+        }
+        return tables;
+    }
+
+    /**
+     * 엔티티 매니저의 현재 트랜잭션에서 모든 집계 테이블을 다시 계산한다.
+     * 영속성 컨텍스트에 이미 있는 집계 엔티티는 갱신되지 않으므로 필요하면 em.clear()한다.
+     */
+    public static void rebuild(EntityManager em) {
+        rebuild(em, EnumSet.allOf(Table.class));
+    }
+
+    /**
+     * entityClass를 벌크 연산으로 바꾼 뒤, 바뀔 수 있는 집계 테이블만 현재 트랜잭션에서 다시 계산한다.
+     * @param delete 벌크 DELETE인지
+     */
+    public static void rebuild(EntityManager em, Class<?> entityClass, boolean delete) {
+        Set<Table> tables = affectedTables(entityClass, delete);
+        if (!tables.isEmpty()) {
+            rebuild(em, tables);
+        }
+    }
+
+    /**
+     * 플러시한 변경까지 다시 계산에 들어가므로, 이 트랜잭션에서 모으던 그 테이블의 차이는 버린다.
+     * (버리지 않으면 커밋할 때 한 번 더 더해진다.)
+     */
+    private static void rebuild(EntityManager em, Set<Table> tables) {
+        em.flush();
+        em.unwrap(Session.class).doWork(connection -> rebuild(connection, tables));
+        RollupEventListener.rebuilt(em.unwrap(SessionImplementor.class), tables);
+    }
+
+    /**
+     * 커넥션의 현재 트랜잭션에서 모든 집계 테이블을 다시 계산한다. 커밋은 호출한 쪽에서 한다.
+     */
+    public static void rebuild(Connection connection) throws SQLException {
+        rebuild(connection, EnumSet.allOf(Table.class));
+    }
+
+    /**
+     * entityClass를 벌크 연산으로 바꾼 뒤, 바뀔 수 있는 집계 테이블만 커넥션의 현재 트랜잭션에서 다시 계산한다.
+     */
+    public static void rebuild(Connection connection, Class<?> entityClass, boolean delete) throws SQLException {
+        rebuild(connection, affectedTables(entityClass, delete));
+    }
+
+    private static void rebuild(Connection connection, Set<Table> tables) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (Table table : tables) {
+                statement.executeUpdate("DELETE FROM " + table.name());
+                statement.executeUpdate(table.insert);
+            }
+        }
+    }
+}
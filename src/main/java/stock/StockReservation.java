@@ -0,0 +1,221 @@
+package stock;
+
+import entity.Product;
+import org.hibernate.Session;
+import org.hibernate.StaleStateException;
+import persistence.JpaBootstrap;
+
+import javax.persistence.CacheRetrieveMode;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityNotFoundException;
+import javax.persistence.OptimisticLockException;
+import javax.persistence.PersistenceException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 상품 재고 차감
+ *
+ * 재고를 읽고, 빼고, 플러시하면 동시에 주문한 쪽의 차감이 사라지고(lost update),
+ * 비관적 락(SELECT ... FOR UPDATE)을 쓰면 같은 상품의 주문이 한 줄로 선다.
+ *
+ * - reserveWithVersion : 낙관적 락(Product.version). 충돌하면 지수 백오프(full jitter) 후 maxAttempts번까지 다시 시도한다.
+ * - reserve : 조건부 UPDATE 한 번 (UPDATE ... SET STOCKAMOUNT = STOCKAMOUNT - ? WHERE STOCKAMOUNT >= ?)
+ *   재고 확인과 차감이 한 문장이라 충돌이 없고, 버전도 올려서 낙관적 락 쪽과 섞어 써도 된다.
+ *   JPQL 벌크 연산은 Product 2차 캐시 영역 전체를 비우므로 JDBC로 실행하고 커밋 후 해당 상품만 캐시에서 지운다.
+ *
+ * 주문이 몰리는 상품은 StripedStockBuffer로 재고를 미리 가져와서 메모리에서 나눠 준다.
+ */
+public class StockReservation {
+
+    public enum Outcome {
+        RESERVED, OUT_OF_STOCK, CONFLICT
+    }
+
+    private static final Map<String, Object> BYPASS_CACHE =
+            Collections.<String, Object>singletonMap("javax.persistence.cache.retrieveMode", CacheRetrieveMode.BYPASS);
+
+    private final JpaBootstrap bootstrap;
+    private final int maxAttempts;
+    private final long baseBackoffNanos;
+    private final long maxBackoffNanos;
+
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+
+    /**
+     * 최대 5번, 백오프 1ms부터 50ms까지
+     */
+    public StockReservation(JpaBootstrap bootstrap) {
+        this(bootstrap, 5, 1, 50, TimeUnit.MILLISECONDS);
+    }
+
+    public StockReservation(JpaBootstrap bootstrap, int maxAttempts, long baseBackoff, long maxBackoff, TimeUnit unit) {
+        if (maxAttempts <= 0 || baseBackoff <= 0 || maxBackoff < baseBackoff) {
+            throw new IllegalArgumentException("Invalid retry settings: " + maxAttempts + ", " + baseBackoff + ", " + maxBackoff);
+        }
+        this.bootstrap = bootstrap;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffNanos = unit.toNanos(baseBackoff);
+        this.maxBackoffNanos = unit.toNanos(maxBackoff);
+    }
+
+    /**
+     * 낙관적 락으로 재고를 뺀다.
+     * @return 재고가 부족하면 OUT_OF_STOCK, maxAttempts번 모두 충돌하면 CONFLICT
+     */
+    public Outcome reserveWithVersion(long productId, int quantity) {
+        checkQuantity(quantity);
+        for (int attempt = 1; ; attempt++) {
+            attempts.increment();
+            try {
+                boolean reserved = bootstrap.inTransaction(em -> {
+                    // 2차 캐시의 버전이 오래됐으면 매번 충돌하므로 데이터베이스에서 읽는다.
+                    Product product = em.find(Product.class, productId, BYPASS_CACHE);
+                    if (product == null) {
+                        throw new EntityNotFoundException("Product not found: " + productId);
+                    }
+                    if (product.getStockAmount() < quantity) {
+                        return false;
+                    }
+                    product.setStockAmount(product.getStockAmount() - quantity);
+                    // 충돌을 커밋(RollbackException)이 아니라 여기서 OptimisticLockException으로 받는다.
+                    em.flush();
+                    return true;
+                });
+                return reserved ? Outcome.RESERVED : Outcome.OUT_OF_STOCK;
+            } catch (PersistenceException e) {
+                if (!isConflict(e)) {
+                    throw e;
+                }
+                conflicts.increment();
+                if (attempt >= maxAttempts) {
+                    return Outcome.CONFLICT;
+                }
+                backoff(attempt);
+            }
+        }
+    }
+
+    /**
+     * 조건부 UPDATE로 재고를 뺀다.
+     * @return 재고가 quantity 이상이어서 뺐으면 true
+     */
+    public boolean reserve(long productId, int quantity) {
+        checkQuantity(quantity);
+        attempts.increment();
+        boolean reserved = bootstrap.inTransaction(em -> update(em,
+                "UPDATE PRODUCT SET STOCKAMOUNT = STOCKAMOUNT - ?, VERSION = VERSION + 1 WHERE ID = ? AND STOCKAMOUNT >= ?",
+                quantity, productId, quantity) == 1);
+        if (reserved) {
+            evict(productId);
+        }
+        return reserved;
+    }
+
+    /**
+     * 최대 quantity만큼, 재고가 모자라면 남은 만큼만 뺀다.
+     * @return 뺀 수량
+     */
+    public int reserveUpTo(long productId, int quantity) {
+        checkQuantity(quantity);
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            if (reserve(productId, quantity)) {
+                return quantity;
+            }
+            int stock = bootstrap.inTransaction(em -> stockAmount(em, productId));
+            if (stock <= 0) {
+                return 0;
+            }
+            if (reserve(productId, Math.min(stock, quantity))) {
+                return Math.min(stock, quantity);
+            }
+            // 확인한 재고를 그 사이에 다른 주문이 가져갔다.
+            conflicts.increment();
+            backoff(attempt);
+        }
+        return 0;
+    }
+
+    /**
+     * 뺀 재고를 되돌린다. (주문 취소, 미리 가져온 재고 반납)
+     */
+    public void release(long productId, int quantity) {
+        checkQuantity(quantity);
+        bootstrap.runInTransaction(em -> update(em,
+                "UPDATE PRODUCT SET STOCKAMOUNT = STOCKAMOUNT + ?, VERSION = VERSION + 1 WHERE ID = ?",
+                quantity, productId));
+        evict(productId);
+    }
+
+    /**
+     * 재고 차감 시도 수 (다시 시도한 것 포함)
+     */
+    public long getAttemptCount() {
+        return attempts.sum();
+    }
+
+    /**
+     * 충돌 수
+     */
+    public long getConflictCount() {
+        return conflicts.sum();
+    }
+
+    public double getConflictRate() {
+        long total = attempts.sum();
+        return total == 0 ? 0.0 : (double) conflicts.sum() / total;
+    }
+
+    private void evict(long productId) {
+        bootstrap.getEntityManagerFactory().getCache().evict(Product.class, productId);
+    }
+
+    private void backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffNanos, baseBackoffNanos << Math.min(attempt - 1, 20));
+        LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(ceiling + 1));
+    }
+
+    private static boolean isConflict(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockException || cause instanceof StaleStateException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void checkQuantity(int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("quantity must be positive: " + quantity);
+        }
+    }
+
+    private static int update(EntityManager em, String sql, long... parameters) {
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                for (int i = 0; i < parameters.length; i++) {
+                    ps.setLong(i + 1, parameters[i]);
+                }
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    private static int stockAmount(EntityManager em, long productId) {
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement("SELECT STOCKAMOUNT FROM PRODUCT WHERE ID = ?")) {
+                ps.setLong(1, productId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,128 @@
+package stock;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * 주문이 몰리는 상품의 재고 선점
+ *
+ * 데이터베이스에서 재고를 blockSize씩 미리 빼 와서(StockReservation.reserveUpTo) 메모리의 스트라이프에 나눠 두고,
+ * 주문은 스레드별 스트라이프에서 CAS로 뺀다. 같은 재고 로우를 갱신하는 횟수가 주문 수의 1/blockSize로 줄고,
+ * 스트라이프를 나눠서 메모리 카운터 하나에 스레드가 몰리지도 않는다.
+ *
+ * 가져온 재고는 close()할 때 데이터베이스로 반납한다.
+ * 프로세스가 비정상 종료하면 가져온 재고가 반납되지 않으므로 blockSize는 잃어도 되는 만큼으로 정한다.
+ * 여러 프로세스가 같은 상품을 팔아도 데이터베이스에서 가져올 때 조건부 UPDATE를 쓰므로 초과 판매는 없다.
+ */
+public class StripedStockBuffer implements AutoCloseable {
+
+    // 스트라이프끼리 같은 캐시 라인을 쓰지 않게 띄운다. (int 16개 = 64바이트)
+    private static final int PADDING = 16;
+
+    private final StockReservation reservation;
+    private final long productId;
+    private final int blockSize;
+    private final int stripeCount;
+    private final AtomicIntegerArray stripes;
+
+    /**
+     * @param reservation 데이터베이스 재고 차감
+     * @param productId 상품
+     * @param stripeCount 스트라이프 수 (동시에 주문하는 스레드 수 정도)
+     * @param blockSize 한 번에 가져올 재고
+     */
+    public StripedStockBuffer(StockReservation reservation, long productId, int stripeCount, int blockSize) {
+        if (stripeCount <= 0 || blockSize <= 0) {
+            throw new IllegalArgumentException("stripeCount and blockSize must be positive: " + stripeCount + ", " + blockSize);
+        }
+        this.reservation = reservation;
+        this.productId = productId;
+        this.blockSize = blockSize;
+        this.stripeCount = stripeCount;
+        this.stripes = new AtomicIntegerArray(stripeCount * PADDING);
+    }
+
+    /**
+     * 재고를 뺀다.
+     * @return 메모리와 데이터베이스 재고를 합쳐도 부족하면 false
+     */
+    public boolean reserve(int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("quantity must be positive: " + quantity);
+        }
+        int home = home();
+        if (tryTakeAny(home, quantity)) {
+            return true;
+        }
+        synchronized (this) {
+            // 기다리는 동안 다른 스레드가 채웠을 수 있다.
+            if (tryTakeAny(home, quantity)) {
+                return true;
+            }
+            int fetched = reservation.reserveUpTo(productId, Math.max(blockSize, quantity));
+            if (fetched >= quantity) {
+                stripes.addAndGet(home * PADDING, fetched - quantity);
+                return true;
+            }
+            // 데이터베이스에도 모자라면 스트라이프에 흩어진 재고를 모아서 본다.
+            int pooled = fetched;
+            for (int i = 0; i < stripeCount; i++) {
+                pooled += stripes.getAndSet(i * PADDING, 0);
+            }
+            boolean reserved = pooled >= quantity;
+            stripes.addAndGet(home * PADDING, reserved ? pooled - quantity : pooled);
+            return reserved;
+        }
+    }
+
+    /**
+     * 메모리에 가지고 있는 재고
+     */
+    public int getBuffered() {
+        int sum = 0;
+        for (int i = 0; i < stripeCount; i++) {
+            sum += stripes.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    private boolean tryTakeAny(int home, int quantity) {
+        for (int i = 0; i < stripeCount; i++) {
+            if (tryTake((home + i) % stripeCount, quantity)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean tryTake(int stripe, int quantity) {
+        int index = stripe * PADDING;
+        for (;;) {
+            int available = stripes.get(index);
+            if (available < quantity) {
+                return false;
+            }
+            if (stripes.compareAndSet(index, available, available - quantity)) {
+                return true;
+            }
+        }
+    }
+
+    private int home() {
+        long id = Thread.currentThread().threadId();
+        return (int) Math.floorMod(id * 0x9E3779B97F4A7C15L >>> 32, (long) stripeCount);
+    }
+
+    /**
+     * 가지고 있는 재고를 데이터베이스로 반납한다.
+     */
+    @Override
+    public synchronized void close() {
+        int remaining = 0;
+        for (int i = 0; i < stripeCount; i++) {
+            remaining += stripes.getAndSet(i * PADDING, 0);
+        }
+        if (remaining > 0) {
+            reservation.release(productId, remaining);
+        }
+    }
+}
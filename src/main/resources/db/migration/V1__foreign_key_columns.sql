@@ -0,0 +1,14 @@
+-- 수동 실행 스크립트 : 애플리케이션과 빌드는 db/migration의 스크립트를 실행하지 않는다. (Flyway 등 미사용)
+-- 기존 데이터베이스에 V1, V2 순서로 한 번씩 H2 RunScript로 실행한다.
+--   java -cp h2-1.4.187.jar org.h2.tools.RunScript -url jdbc:h2:tcp://localhost/~/test -user sa -script src/main/resources/db/migration/V1__foreign_key_columns.sql
+-- 컬럼 이름을 바꾸므로 두 번 실행하면 실패한다.
+
+-- 외래 키 컬럼 정리 (hbm2ddl=create를 쓰지 않는 기존 H2 데이터베이스용)
+-- 주문의 회원 외래 키가 ORDER_ID 컬럼에 매핑되어 있던 것을 MEMBER_ID로 바꾸고,
+-- 조인에 쓰는 외래 키 컬럼마다 인덱스를 만든다.
+
+ALTER TABLE ORDERS ALTER COLUMN ORDER_ID RENAME TO MEMBER_ID;
+
+CREATE INDEX IF NOT EXISTS IDX_MEMBER_TEAM_ID ON MEMBER (TEAM_ID);
+CREATE INDEX IF NOT EXISTS IDX_ORDERS_MEMBER_ID ON ORDERS (MEMBER_ID);
+CREATE INDEX IF NOT EXISTS IDX_ORDERS_PRODUCT_ID ON ORDERS (PRODUCT_ID);
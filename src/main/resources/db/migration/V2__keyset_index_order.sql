@@ -0,0 +1,9 @@
+-- 수동 실행 스크립트 : 애플리케이션과 빌드는 db/migration의 스크립트를 실행하지 않는다. (Flyway 등 미사용)
+-- 기존 데이터베이스에 V1, V2 순서로 한 번씩 H2 RunScript로 실행한다.
+--   java -cp h2-1.4.187.jar org.h2.tools.RunScript -url jdbc:h2:tcp://localhost/~/test -user sa -script src/main/resources/db/migration/V2__keyset_index_order.sql
+
+-- 키셋 페이징 인덱스를 정렬 방향(username DESC, id DESC)으로 다시 만든다. (hbm2ddl=create를 쓰지 않는 기존 H2 데이터베이스용)
+-- H2는 오름차순 인덱스를 거꾸로 읽어서 ORDER BY ... DESC를 처리하지 못하고 범위 전체를 읽은 뒤 정렬한다.
+
+DROP INDEX IF EXISTS IDX_MEMBER_USERNAME_ID;
+CREATE INDEX IDX_MEMBER_USERNAME_ID ON MEMBER (USERNAME DESC, ID DESC);
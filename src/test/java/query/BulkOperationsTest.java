@@ -0,0 +1,108 @@
+package query;
+
+import com.zaxxer.hikari.HikariConfig;
+import entity.Member;
+import entity.Team;
+import entity.TeamStats;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import persistence.JpaBootstrap;
+
+import javax.persistence.EntityManager;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 같은 트랜잭션에서 엔티티를 저장하고 벌크 연산을 실행해도 집계가 한 번만 반영되는지
+ */
+class BulkOperationsTest {
+
+    private static JpaBootstrap bootstrap;
+
+    @BeforeAll
+    static void start() {
+        HikariConfig config = JpaBootstrap.defaultPoolConfig();
+        config.setJdbcUrl("jdbc:h2:mem:bulk_operations_test;DB_CLOSE_DELAY=-1");
+        Map<String, Object> overrides = new HashMap<String, Object>();
+        overrides.put("hibernate.hbm2ddl.auto", "create-drop");
+        overrides.put("hibernate.show_sql", "false");
+        bootstrap = new JpaBootstrap(config, overrides);
+    }
+
+    @AfterAll
+    static void stop() {
+        bootstrap.close();
+    }
+
+    @Test
+    void noOpBulkUpdateKeepsPendingMemberDelta() {
+        Long teamId = teamWithMember("no-op", 20);
+
+        bootstrap.runInTransaction(em -> {
+            member(em, em.getReference(Team.class, teamId), "no-op-2", 30);
+            int updated = BulkOperations.execute(em, Member.class,
+                    "update Member m set m.age = m.age + 1 where m.username = :username",
+                    Collections.singletonMap("username", "nobody"), BulkOperations.Coherence.DETACH);
+            assertEquals(0, updated);
+        });
+
+        assertStats(teamId, 2, 50);
+    }
+
+    @Test
+    void bulkUpdateRebuildCountsPendingMemberOnce() {
+        Long teamId = teamWithMember("rebuild", 20);
+
+        bootstrap.runInTransaction(em -> {
+            member(em, em.getReference(Team.class, teamId), "rebuild-2", 30);
+            int updated = BulkOperations.execute(em, Member.class,
+                    "update Member m set m.age = m.age + 1 where m.team.id = :teamId",
+                    Collections.singletonMap("teamId", teamId), BulkOperations.Coherence.DETACH);
+            assertEquals(2, updated);
+        });
+
+        assertStats(teamId, 2, 52);
+    }
+
+    @Test
+    void changesAfterBulkUpdateAreStillApplied() {
+        Long teamId = teamWithMember("after", 20);
+
+        bootstrap.runInTransaction(em -> {
+            BulkOperations.execute(em, Member.class,
+                    "update Member m set m.age = m.age + 1 where m.team.id = :teamId",
+                    Collections.singletonMap("teamId", teamId), BulkOperations.Coherence.DETACH);
+            member(em, em.getReference(Team.class, teamId), "after-2", 30);
+        });
+
+        assertStats(teamId, 2, 51);
+    }
+
+    private static Long teamWithMember(String name, int age) {
+        return bootstrap.inTransaction(em -> {
+            Team team = new Team();
+            team.setName(name);
+            em.persist(team);
+            member(em, team, name, age);
+            return team.getId();
+        });
+    }
+
+    private static void member(EntityManager em, Team team, String username, int age) {
+        Member member = new Member();
+        member.setUsername(username);
+        member.setAge(age);
+        member.setTeam(team);
+        em.persist(member);
+    }
+
+    private static void assertStats(Long teamId, long memberCount, long ageSum) {
+        TeamStats stats = bootstrap.inTransaction(em -> em.find(TeamStats.class, teamId));
+        assertEquals(memberCount, stats.getMemberCount());
+        assertEquals(ageSum, stats.getAgeSum());
+    }
+}